@@ -0,0 +1,25 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Locates the data files, whether the benchmarks are run from the Streams folder or from the benchmarks folder below it.
+// -Dstreams.data=<folder> overrides this.
+class BenchmarkData {
+
+	static Path path(String fileName) {
+		String folder = System.getProperty("streams.data");
+		if(folder == null) {
+			folder = Files.isDirectory(Paths.get("data")) ? "data" : "../data";
+		}
+		return Paths.get(folder, fileName);
+	}
+
+	static List<String> lines(String fileName, Charset charset) throws IOException {
+		return Files.readAllLines(path(fileName), charset);
+	}
+}
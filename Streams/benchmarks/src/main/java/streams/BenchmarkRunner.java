@@ -0,0 +1,30 @@
+package streams;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, but writing the results as JSON to jmh-results.json unless a result
+ * format or file is given, so that results can be kept and compared between releases. 
+ * 
+ *   java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexps]
+ */
+public class BenchmarkRunner {
+
+	static final String DEFAULT_RESULT_FILE = "jmh-results.json";
+
+	public static void main(String argv[]) throws Exception {
+		CommandLineOptions cmdOptions = new CommandLineOptions(argv);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+		if(!cmdOptions.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if(!cmdOptions.getResult().hasValue()) {
+			builder.result(DEFAULT_RESULT_FILE);
+		}
+		new Runner(builder.build()).run();
+	}
+}
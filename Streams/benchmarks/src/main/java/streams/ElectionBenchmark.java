@@ -0,0 +1,123 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElectionBenchmark {
+
+	static final int LOAD_CHUNK_BYTES = 16 * 1024;		// The data files are small, so use small chunks to get some parallelism
+	static final String RESULTS_FILE = "UKGeneralElection2017.csv";
+
+	List<String> m_lines;
+	List<CandidateResult> m_results;
+	PartyRegistry m_registry;
+	List<Constituency> m_constituencies;
+
+	@Setup
+	public void setup() throws IOException {
+		m_lines = BenchmarkData.lines(RESULTS_FILE, StandardCharsets.ISO_8859_1);
+		m_results = m_lines.stream().map(new CandidateResult.Names()::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+		m_registry = PartyRegistry.defaults();
+		m_constituencies = GeneralElection.buildConstituencies(m_results.stream(), m_registry);
+	}
+
+	@Benchmark
+	public List<CandidateResult> fromLineSequential() {
+		CandidateResult.Names names = new CandidateResult.Names();
+		return m_lines.stream().map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<CandidateResult> fromLineParallel() {
+		CandidateResult.Names names = new CandidateResult.Names();
+		return m_lines.parallelStream().map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Constituency> constituenciesSequential() {
+		return GeneralElection.buildConstituencies(m_results.stream(), m_registry);
+	}
+
+	@Benchmark
+	public List<Constituency> constituenciesParallel() {
+		return GeneralElection.buildConstituencies(m_results.parallelStream(), m_registry);
+	}
+
+	@Benchmark
+	public Map<String, PartyResult> partyResultsSequential() {
+		return m_constituencies.stream().collect(PartyResult.ResultCollector.getCollector());
+	}
+
+	@Benchmark
+	public Map<String, PartyResult> partyResultsParallel() {
+		return m_constituencies.parallelStream().collect(PartyResult.ResultCollector.getCollector());
+	}
+
+	// Shared ConcurrentHashMap of LongAdders, against the per-thread HashMaps merged by ResultCollector above
+	@Benchmark
+	public Map<String, PartyResult> partyResultsConcurrentSequential() {
+		return m_constituencies.stream().collect(PartyResult.ConcurrentResultCollector.getCollector());
+	}
+
+	@Benchmark
+	public Map<String, PartyResult> partyResultsConcurrentParallel() {
+		return m_constituencies.parallelStream().collect(PartyResult.ConcurrentResultCollector.getCollector());
+	}
+
+	// The top 10 constituencies by winning share, by sorting them all and with a bounded heap
+	@Benchmark
+	public List<Constituency> rankingSorted() {
+		return m_constituencies.stream().sorted(Comparator.comparingDouble(Constituency::winningShare)).limit(10).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Constituency> rankingTopK() {
+		return m_constituencies.stream().collect(TopK.top(10, Comparator.comparingDouble(Constituency::winningShare)));
+	}
+
+	@Benchmark
+	public List<Constituency> rankingTopKParallel() {
+		return m_constituencies.parallelStream().collect(TopK.top(10, Comparator.comparingDouble(Constituency::winningShare)));
+	}
+
+	// Whole file load, as a sequential Files.lines stream and as memory-mapped chunks parsed in parallel. Each load names its results
+	// afresh, as a separate data set would.
+	@Benchmark
+	public List<CandidateResult> loadSequential() throws IOException {
+		CandidateResult.Names names = new CandidateResult.Names();
+		try (Stream<String> lines = Files.lines(BenchmarkData.path(RESULTS_FILE), StandardCharsets.ISO_8859_1)) {
+			return lines.map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+		}
+	}
+
+	@Benchmark
+	public LoadResult<CandidateResult> loadParallel() throws IOException {
+		return ChunkedFileLoader.load(BenchmarkData.path(RESULTS_FILE), StandardCharsets.ISO_8859_1, new CandidateResult.Names()::fromLine, ForkJoinPool.commonPool(), LOAD_CHUNK_BYTES);
+	}
+}
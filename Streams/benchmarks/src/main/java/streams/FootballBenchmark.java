@@ -0,0 +1,117 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FootballBenchmark {
+
+	static final int LOAD_CHUNK_BYTES = 16 * 1024;		// The data files are small, so use small chunks to get some parallelism
+	static final String RESULTS_FILE = "EnglishPremierLeagueResults2016-17.csv";
+
+	List<String> m_lines;
+	FootballMatch.Names m_names;
+	List<FootballMatch> m_matches;
+	MatchTable m_table;
+
+	@Setup
+	public void setup() throws IOException {
+		m_lines = BenchmarkData.lines(RESULTS_FILE, StandardCharsets.UTF_8);
+		m_names = new FootballMatch.Names();
+		m_matches = m_lines.stream().map(m_names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+		m_table = MatchTable.of(m_matches);
+	}
+
+	@Benchmark
+	public List<FootballMatch> fromLineSequential() {
+		FootballMatch.Names names = new FootballMatch.Names();
+		return m_lines.stream().map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<FootballMatch> fromLineParallel() {
+		FootballMatch.Names names = new FootballMatch.Names();
+		return m_lines.parallelStream().map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public League leagueSequential() {
+		return FootballSeason.buildLeague("Benchmark League", m_matches.stream());
+	}
+
+	@Benchmark
+	public League leagueParallel() {
+		return FootballSeason.buildLeague("Benchmark League", m_matches.parallelStream());
+	}
+
+	@Benchmark
+	public Map<LeagueKey, League> leaguesByKeySequential() {
+		return FootballSeason.buildLeagues(m_matches.stream());
+	}
+
+	@Benchmark
+	public Map<LeagueKey, League> leaguesByKeyParallel() {
+		return FootballSeason.buildLeagues(m_matches.parallelStream());
+	}
+
+	@Benchmark
+	public League leagueColumnar() {
+		return m_table.league("Benchmark League");
+	}
+
+	@Benchmark
+	public IncrementalLeague leagueIncremental() {
+		IncrementalLeague league = new IncrementalLeague("Benchmark League");
+		m_matches.forEach(league::add);
+		return league;
+	}
+
+	@Benchmark
+	public MatchStatistics matchStatisticsSequential() {
+		return m_matches.stream().collect(MatchStatistics.collector("Leicester", m_names));
+	}
+
+	@Benchmark
+	public MatchStatistics matchStatisticsParallel() {
+		return m_matches.parallelStream().collect(MatchStatistics.collector("Leicester", m_names));
+	}
+
+	// Whole file load, as a sequential Files.lines stream and as memory-mapped chunks parsed in parallel. Each load names its matches
+	// afresh, as a separate data set would.
+	@Benchmark
+	public List<FootballMatch> loadSequential() throws IOException {
+		FootballMatch.Names names = new FootballMatch.Names();
+		try (Stream<String> lines = Files.lines(BenchmarkData.path(RESULTS_FILE), StandardCharsets.UTF_8)) {
+			return lines.map(names::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+		}
+	}
+
+	@Benchmark
+	public LoadResult<FootballMatch> loadParallel() throws IOException {
+		return ChunkedFileLoader.load(BenchmarkData.path(RESULTS_FILE), StandardCharsets.UTF_8, new FootballMatch.Names()::fromLine, ForkJoinPool.commonPool(), LOAD_CHUNK_BYTES);
+	}
+}
@@ -0,0 +1,58 @@
+package streams;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesBenchmark {
+
+	@Param({ "10000000" })
+	int primesBelow;
+
+	@Param({ "200" })
+	int eTerms;
+
+	// PrimeSeries.get() until the limit is reached
+	@Benchmark
+	public int primeSeriesSequential() {
+		PrimeSeries primes = new PrimeSeries();
+		int count = 0;
+		while(primes.get().m_primeNumber < primesBelow) {
+			count++;
+		}
+		return count;
+	}
+
+	// The same primes, sieved in parallel over split ranges
+	@Benchmark
+	public long primeSeriesParallel() {
+		return PrimeSieve.primes(2, primesBelow, true).count();
+	}
+
+	@Benchmark
+	public BigDecimal bdApproxESequential() {
+		return Stream.iterate(BigDecimal.ZERO, new BDApproxE()).limit(eTerms).reduce((x, y) -> y).get();
+	}
+
+	@Benchmark
+	public BigDecimal bdApproxEParallel() {
+		return SeriesSources.bdApproxE(eTerms).parallel().reduce((x, y) -> y).get();
+	}
+}
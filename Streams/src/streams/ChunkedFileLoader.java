@@ -0,0 +1,175 @@
+package streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Loads a file of records by memory-mapping it in line-aligned chunks, which are decoded and parsed in parallel on a ForkJoinPool.
+ * The records are returned in file order, along with the rejected lines and their line numbers. Each chunk gathers its own rejects and
+ * counts, which are renumbered as the chunks are appended, so nothing is shared between threads while parsing.
+ *
+ * Chunks are split at '\n' bytes, so the charset must be one where that byte is only ever a line feed - true of ISO-8859-1 and UTF-8,
+ * but not UTF-16. Malformed input is replaced rather than failing the load.
+ */
+class ChunkedFileLoader {
+
+	static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+	static <T> LoadResult<T> load(Path path, Charset charset, RecordParser<T> parser) throws IOException {
+		return load(path, charset, parser, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+	}
+
+	static <T> LoadResult<T> load(Path path, Charset charset, RecordParser<T> parser, ForkJoinPool pool, int chunkBytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long boundaries[] = chunkBoundaries(channel, chunkBytes);
+			return pool.invoke(new ChunkTask<T>(channel, charset, parser, boundaries, 0, boundaries.length - 1));
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Offsets of the start of each chunk, plus the end of the file. Each chunk after the first starts just after a '\n'.
+	static long[] chunkBoundaries(FileChannel channel, int chunkBytes) throws IOException {
+		long size = channel.size();
+		List<Long> boundaries = new ArrayList<>();
+		boundaries.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long start = 0;
+		while(size - start > chunkBytes) {
+			long pos = start + chunkBytes;
+			long lineStart = -1;
+			while(lineStart == -1 && pos < size) {
+				buffer.clear();
+				int read = channel.read(buffer, pos);
+				if(read <= 0) {
+					break;
+				}
+				for(int i = 0; i < read; i++) {
+					if(buffer.get(i) == '\n') {
+						lineStart = pos + i + 1;
+						break;
+					}
+				}
+				pos += read;
+			}
+			if(lineStart == -1 || lineStart >= size) {
+				break;
+			}
+			boundaries.add(lineStart);
+			start = lineStart;
+		}
+		boundaries.add(size);
+		return boundaries.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	static <T> LoadResult<T> parseChunk(FileChannel channel, Charset charset, RecordParser<T> parser, long start, long end) throws IOException {
+		MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		CharsetDecoder decoder = charset.newDecoder()
+										.onMalformedInput(CodingErrorAction.REPLACE)
+										.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = decoder.decode(bytes);
+		int length = chars.length();
+		LoadResult<T> result = new LoadResult<>();
+		LineRejects rejects = new LineRejects(result.m_rejects);
+		int lineStart = 0;
+		while(lineStart < length) {
+			int lineEnd = lineStart;
+			while(lineEnd < length && chars.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int next = lineEnd + 1;
+			if(lineEnd > lineStart && chars.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			rejects.next(++result.m_lines, chars.subSequence(lineStart, lineEnd).toString());
+			T record = parser.parse(rejects.m_line, rejects);
+			if(!rejects.m_rejected) {
+				if(record != null) {
+					result.m_records.add(record);
+				}
+				else {
+					result.m_skipped++;
+				}
+			}
+			lineStart = next;
+		}
+		return result;
+	}
+
+	// Records rejects against the line currently being parsed, numbered within the chunk
+	static class LineRejects implements Consumer<String> {
+
+		List<LoadResult.Reject> m_rejects;
+		long m_lineNumber;
+		String m_line;
+		boolean m_rejected;
+
+		LineRejects(List<LoadResult.Reject> rejects) {
+			m_rejects = rejects;
+		}
+
+		void next(long lineNumber, String line) {
+			m_lineNumber = lineNumber;
+			m_line = line;
+			m_rejected = false;
+		}
+
+		public void accept(String reason) {
+			if(!m_rejected) {
+				m_rejects.add(new LoadResult.Reject(m_lineNumber, m_line, reason));
+				m_rejected = true;
+			}
+		}
+	}
+
+	// Parses chunks [from, to) of the file, splitting the range in two while there is more than one chunk
+	static class ChunkTask<T> extends RecursiveTask<LoadResult<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		FileChannel m_channel;
+		Charset m_charset;
+		RecordParser<T> m_parser;
+		long[] m_boundaries;
+		int m_from;
+		int m_to;
+
+		ChunkTask(FileChannel channel, Charset charset, RecordParser<T> parser, long[] boundaries, int from, int to) {
+			m_channel = channel;
+			m_charset = charset;
+			m_parser = parser;
+			m_boundaries = boundaries;
+			m_from = from;
+			m_to = to;
+		}
+
+		protected LoadResult<T> compute() {
+			if(m_to - m_from <= 1) {
+				try {
+					return parseChunk(m_channel, m_charset, m_parser, m_boundaries[m_from], m_boundaries[m_to]);
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			int mid = (m_from + m_to) >>> 1;
+			ChunkTask<T> first = new ChunkTask<>(m_channel, m_charset, m_parser, m_boundaries, m_from, mid);
+			first.fork();
+			LoadResult<T> second = new ChunkTask<>(m_channel, m_charset, m_parser, m_boundaries, mid, m_to).compute();
+			return first.join().append(second);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package streams;
+
+enum Country {
+	
+	ENGLAND("England"), SCOTLAND("Scotland"), WALES("Wales"), NORTHERN_IRELAND("Northern Ireland");
+	
+	String m_label; 
+	Country(String label) {
+		m_label = label;
+	}
+	
+	public String toString() {
+		return m_label;
+	}
+
+	// Matches the label or the constant name, ignoring case, or null if neither matches
+	static Country fromLabel(String label) {
+		for(Country c : values()) {
+			if(c.m_label.equalsIgnoreCase(label) || c.name().equalsIgnoreCase(label)) {
+				return c;
+			}
+		}
+		return null;
+	}
+}
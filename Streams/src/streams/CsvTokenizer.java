@@ -0,0 +1,176 @@
+package streams;
+
+import java.util.Arrays;
+
+/**
+ * Reusable RFC 4180 tokenizer for one CSV record at a time. Rather than splitting the line into new Strings, it records where each
+ * field starts and ends, so a parser can read ints straight from the line and only create Strings for the fields it keeps.
+ *
+ * Quoted fields may contain commas and doubled double quotes. A record can't continue onto the next line inside a quoted field, as
+ * the loaders pass records over one line at a time.
+ *
+ * Not thread safe - use one tokenizer per thread.
+ */
+class CsvTokenizer {
+
+	static final char SEPARATOR = ',';
+	static final char QUOTE = '"';
+
+	CharSequence m_line;
+	int m_count;
+	int[] m_starts;				// Field start offsets, excluding any opening quote
+	int[] m_ends;				// Field end offsets (exclusive), excluding any closing quote
+	boolean[] m_escaped;		// Whether a quoted field contains doubled quotes to be unescaped
+	String m_error;				// Why the last record couldn't be tokenized
+
+	CsvTokenizer() {
+		m_starts = new int[16];
+		m_ends = new int[16];
+		m_escaped = new boolean[16];
+		m_count = 0;
+	}
+
+	boolean tokenize(CharSequence line) {
+		return tokenize(line, Integer.MAX_VALUE);
+	}
+
+	// Tokenizes up to maxFields fields of the line, ignoring the rest. Returns false, with the reason in error(), if the line isn't
+	// valid CSV.
+	boolean tokenize(CharSequence line, int maxFields) {
+		m_line = line;
+		m_count = 0;
+		m_error = null;
+		int length = line.length();
+		int pos = 0;
+		while(m_count < maxFields) {
+			if(pos < length && line.charAt(pos) == QUOTE) {
+				int start = ++pos;
+				boolean escaped = false;
+				while(true) {
+					if(pos >= length) {
+						m_error = "Unterminated quoted field " + (m_count+1);
+						return false;
+					}
+					if(line.charAt(pos) == QUOTE) {
+						if(pos + 1 < length && line.charAt(pos + 1) == QUOTE) {
+							escaped = true;
+							pos += 2;
+							continue;
+						}
+						break;
+					}
+					pos++;
+				}
+				addField(start, pos, escaped);
+				pos++;			// Past the closing quote
+				if(pos < length && line.charAt(pos) != SEPARATOR) {
+					m_error = "Unexpected character after quoted field " + m_count;
+					return false;
+				}
+			}
+			else {
+				int start = pos;
+				while(pos < length && line.charAt(pos) != SEPARATOR) {
+					pos++;
+				}
+				addField(start, pos, false);
+			}
+			if(pos >= length) {
+				break;
+			}
+			pos++;				// Past the separator
+		}
+		return true;
+	}
+
+	void addField(int start, int end, boolean escaped) {
+		if(m_count == m_starts.length) {
+			int capacity = m_count * 2;
+			m_starts = Arrays.copyOf(m_starts, capacity);
+			m_ends = Arrays.copyOf(m_ends, capacity);
+			m_escaped = Arrays.copyOf(m_escaped, capacity);
+		}
+		m_starts[m_count] = start;
+		m_ends[m_count] = end;
+		m_escaped[m_count] = escaped;
+		m_count++;
+	}
+
+	int fieldCount() { return m_count; }
+	String error() { return m_error; }
+	int fieldStart(int i) { return m_starts[check(i)]; }
+	int fieldEnd(int i) { return m_ends[check(i)]; }
+	int fieldLength(int i) { return m_ends[check(i)] - m_starts[i]; }
+
+	int check(int i) {
+		if(i < 0 || i >= m_count) {
+			throw new IndexOutOfBoundsException("Field " + i + " of " + m_count);
+		}
+		return i;
+	}
+
+	String field(int i) {
+		String s = m_line.subSequence(fieldStart(i), m_ends[i]).toString();
+		return m_escaped[i] ? s.replace("\"\"", "\"") : s;
+	}
+
+	// Field with leading and trailing white space removed
+	String trimmedField(int i) {
+		int start = fieldStart(i);
+		int end = m_ends[i];
+		while(start < end && Character.isWhitespace(m_line.charAt(start))) start++;
+		while(end > start && Character.isWhitespace(m_line.charAt(end - 1))) end--;
+		String s = m_line.subSequence(start, end).toString();
+		return m_escaped[i] ? s.replace("\"\"", "\"") : s;
+	}
+
+	char charAt(int i, int offset) {
+		return m_line.charAt(fieldStart(i) + offset);
+	}
+
+	boolean fieldEquals(int i, String s) {
+		int start = fieldStart(i);
+		int length = m_ends[i] - start;
+		if(length != s.length()) {
+			return false;
+		}
+		for(int j = 0; j < length; j++) {
+			if(m_line.charAt(start + j) != s.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Parses the field as an int directly from the line, ignoring surrounding white space
+	int intField(int i) {
+		int start = fieldStart(i);
+		int end = m_ends[i];
+		while(start < end && Character.isWhitespace(m_line.charAt(start))) start++;
+		while(end > start && Character.isWhitespace(m_line.charAt(end - 1))) end--;
+		boolean negative = false;
+		if(start < end && (m_line.charAt(start) == '-' || m_line.charAt(start) == '+')) {
+			negative = m_line.charAt(start) == '-';
+			start++;
+		}
+		if(start == end) {
+			throw new NumberFormatException("No digits in field " + i + ": " + m_line.subSequence(m_starts[i], m_ends[i]));
+		}
+		long value = 0;
+		for(int pos = start; pos < end; pos++) {
+			int digit = Character.digit(m_line.charAt(pos), 10);
+			if(digit < 0) {
+				throw new NumberFormatException("Invalid number in field " + i + ": " + m_line.subSequence(m_starts[i], m_ends[i]));
+			}
+			value = value * 10 + digit;
+			if(value > (long)Integer.MAX_VALUE + 1) {
+				throw new NumberFormatException("Number out of range in field " + i + ": " + m_line.subSequence(m_starts[i], m_ends[i]));
+			}
+		}
+		value = negative ? -value : value;
+		if(value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Number out of range in field " + i + ": " + m_line.subSequence(m_starts[i], m_ends[i]));
+		}
+		return (int)value;
+	}
+}
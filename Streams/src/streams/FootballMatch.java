@@ -0,0 +1,225 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class FootballMatch {
+	
+	enum HorAResultType {
+		HOME_WIN, AWAY_WIN, DRAW
+	}
+
+	String m_league;
+	String m_date;
+	String m_homeTeam;
+	String m_awayTeam;
+	int m_fullTimeHomeScore;
+	int m_fullTimeAwayScore;
+	HorAResultType m_fullTimeResult;
+	int m_leagueId;
+	int m_dateId;
+	int m_homeTeamId;
+	int m_awayTeamId;
+	int m_dateKey;				// yyyymmdd, or 0 if the date isn't valid
+
+	// The names for a set of matches, shared by the matches, with ids for grouping and comparing on. Each set of matches has its
+	// own, held by whatever loads them, so the names are freed along with the matches rather than growing for the life of the run.
+	static class Names {
+		SymbolTable m_leagues = new SymbolTable();
+		SymbolTable m_dates = new SymbolTable();
+		SymbolTable m_teams = new SymbolTable();
+
+		FootballMatch fromLine(String line) {
+			return FootballMatch.fromLine(line, this, reason -> System.err.println("Error - " + reason + ": " + line));
+		}
+
+		// As a RecordParser, for loaders
+		FootballMatch fromLine(String line, Consumer<String> reject) {
+			return FootballMatch.fromLine(line, this, reject);
+		}
+
+		// Id of the team, ignoring case, or -1 if no match has it
+		int teamId(String team) {
+			return m_teams.find(team);
+		}
+	}
+	
+	String homeTeam() { return m_homeTeam; }
+	String awayTeam() { return m_awayTeam; }
+	int homeTeamId() { return m_homeTeamId; }
+	int awayTeamId() { return m_awayTeamId; }
+	int leagueId() { return m_leagueId; }
+	int dateKey() { return m_dateKey; }
+	int homeScore() { return m_fullTimeHomeScore; }
+	int awayScore() { return m_fullTimeAwayScore; }
+	String matchScore() { return homeScore() + "-" + awayScore(); }
+	HorAResultType result() { return m_fullTimeResult; }
+	
+	void setNames(Names names, String league, String date, String homeTeam, String awayTeam) {
+		setIds(names, names.m_leagues.id(league), names.m_dates.id(date), names.m_teams.id(homeTeam), names.m_teams.id(awayTeam));
+	}
+
+	// Ids already in the names, with the names' spellings shared rather than copied
+	void setIds(Names names, int leagueId, int dateId, int homeTeamId, int awayTeamId) {
+		m_leagueId = leagueId;
+		m_dateId = dateId;
+		m_homeTeamId = homeTeamId;
+		m_awayTeamId = awayTeamId;
+		m_league = names.m_leagues.name(leagueId);
+		m_date = names.m_dates.name(dateId);
+		m_dateKey = dateKey(m_date);
+		m_homeTeam = names.m_teams.name(homeTeamId);
+		m_awayTeam = names.m_teams.name(awayTeamId);
+	}
+
+	// Dates are dd/mm/yy, or dd/mm/yyyy in later files. Two digit years from 50 are taken as 19xx. Parsed a character at a time, as
+	// this runs for every match loaded.
+	static int dateKey(String date) {
+		int start = 0;
+		int end = date.length();
+		while(start < end && date.charAt(start) <= ' ') {
+			start++;
+		}
+		while(end > start && date.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		int[] fields = new int[3];
+		int field = 0;
+		int digits = 0;
+		for(int i = start; i < end; i++) {
+			char c = date.charAt(i);
+			if(c == '/') {
+				if(digits == 0 || ++field == fields.length) {
+					return 0;
+				}
+				digits = 0;
+			}
+			else if(c >= '0' && c <= '9' && digits < 4) {
+				fields[field] = fields[field] * 10 + (c - '0');
+				digits++;
+			}
+			else {
+				return 0;
+			}
+		}
+		if(field != 2 || digits == 0) {
+			return 0;
+		}
+		int day = fields[0];
+		int month = fields[1];
+		int year = fields[2];
+		if(year < 100) {
+			year += year >= 50 ? 1900 : 2000;
+		}
+		if(day < 1 || day > 31 || month < 1 || month > 12) {
+			return 0;
+		}
+		return year * 10000 + month * 100 + day;
+	}
+
+	public String toString() {
+		return m_date + " " + m_homeTeam + " " + m_fullTimeHomeScore + "-" + m_fullTimeAwayScore + " " + m_awayTeam;
+	}	
+	static class TeamResult {
+		
+		enum ResultType {
+			WIN, LOSE, DRAW
+		}
+
+		FootballMatch m_match;
+		String m_team;
+		int m_teamId;
+		boolean m_home;
+		int m_goalsFor;
+		int m_goalsAgainst;
+		ResultType m_result;
+		
+		TeamResult(FootballMatch match, boolean isHome) {
+
+			m_match = match;
+			m_home = isHome;
+			m_team = isHome ? match.m_homeTeam : match.m_awayTeam;
+			m_teamId = isHome ? match.m_homeTeamId : match.m_awayTeamId;
+			m_goalsFor = isHome ? match.m_fullTimeHomeScore : match.m_fullTimeAwayScore;
+			m_goalsAgainst = isHome ? match.m_fullTimeAwayScore : match.m_fullTimeHomeScore;
+			m_result = m_goalsFor > m_goalsAgainst ? ResultType.WIN :
+							(m_goalsFor < m_goalsAgainst ? ResultType.LOSE : ResultType.DRAW); 
+		}
+		
+		String team() { return m_team; }
+		int teamId() { return m_teamId; }
+		int goalsFor() { return m_goalsFor; }
+		int goalsAgainst() { return m_goalsAgainst; }
+		
+		int points() {
+			switch(m_result) {
+				case WIN : return 3;
+				case DRAW : return 1;
+				default: return 0;
+			}
+		}
+		
+		public String toString() {
+			return m_team + " " + m_result.toString() + "   " + m_match;
+		}
+	}
+	
+	List<TeamResult> teamResults() {
+		List<TeamResult> l = new ArrayList<>();
+		l.add(new TeamResult(this, true));
+		l.add(new TeamResult(this, false));
+		return l;
+	}
+	
+	// Div,Date,HomeTeam,AwayTeam,FTHG,FTAG,FTR,HTHG,HTAG,HTR,Referee,...
+	// E0,13/08/16,Burnley,Swansea,0,1,A,0,0,D,J Moss,...
+	// E0,13/08/16,Crystal Palace,West Brom,0,1,A,0,0,D,...
+
+	static ThreadLocal<CsvTokenizer> s_tokenizer = ThreadLocal.withInitial(CsvTokenizer::new);
+
+	// Lines which can't be parsed are passed to reject with the reason, rather than reported here
+	static FootballMatch fromLine(String line, Names names, Consumer<String> reject) {
+		CsvTokenizer csv = s_tokenizer.get();
+
+		// Ignore headings and blank lines
+		
+		if(line.trim().length() == 0) return null;
+		if(line.startsWith("Div,Date")) return null;
+		
+		// Only the first 10 of the 60 or so fields are of interest, and Strings are only created for the fields kept 
+		if(!csv.tokenize(line, 10)) {
+			reject.accept("invalid CSV data line: " + csv.error());
+			return null;
+		}
+		if(csv.fieldCount() < 10) {
+			reject.accept("data line with insufficient fields");
+			return null;
+		}
+		
+		FootballMatch fm = new FootballMatch();
+		fm.setNames(names, csv.field(0), csv.field(1), csv.field(2), csv.field(3));
+		try {
+			fm.m_fullTimeHomeScore = csv.intField(4);
+			fm.m_fullTimeAwayScore = csv.intField(5);
+		} catch(NumberFormatException e) {
+			reject.accept("invalid score: " + e.getMessage());
+			return null;
+		}
+		
+		switch(csv.fieldLength(6) == 1 ? csv.charAt(6, 0) : ' ') {
+			case 'H' : fm.m_fullTimeResult = HorAResultType.HOME_WIN; break;
+			case 'A' : fm.m_fullTimeResult = HorAResultType.AWAY_WIN; break;
+			case 'D' : fm.m_fullTimeResult = HorAResultType.DRAW; break;
+			default : fm.m_fullTimeResult = null;
+		};
+		
+		if(fm.m_fullTimeResult == null) {
+			reject.accept("invalid result");
+			return null;			
+		}
+		
+		return fm;
+	}
+	
+}
@@ -5,20 +5,25 @@ package streams;
 // https://docs.oracle.com/javase/8/docs/api/java/util/stream/Collectors.html
 // https://docs.oracle.com/javase/8/docs/api/java/util/function/package-summary.html
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.stream.Stream;
 import java.util.stream.IntStream;
 import java.util.stream.Collectors;
-import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.SortedMap;
+import java.util.BitSet;
 import java.util.Objects;
 import java.util.Comparator;
-import java.util.Formatter;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.Iterator;
@@ -28,68 +33,48 @@ public class FootballSeason {
 
 	public static void main(String argv[]) {
 
+		// FootballSeason -stream <file, or - for standard input> [snapshot interval in milliseconds]
+		if(argv.length >= 2 && argv[0].equals("-stream")) {
+			streamResults(argv[1], argv.length >= 3 ? Long.parseLong(argv[2]) : 1000);
+			return;
+		}
+
 		// Data file from http://www.football-data.co.uk/englandm.php - see notes.txt in data folder		
-		List<FootballMatch> matches = readResultsFile("data\\EnglishPremierLeagueResults2016-17.csv");
+		FootballMatch.Names names = new FootballMatch.Names();
+		LoadResult<FootballMatch> loaded = readResultsFile("data\\EnglishPremierLeagueResults2016-17.csv", names);
 		
-		if(matches == null) return;
+		if(loaded == null) return;
 		
+		List<FootballMatch> matches = loaded.records();
 		System.out.println("Read in " + matches.size() + " matches");
+		if(loaded.rejected() > 0) {
+			System.out.println("- rejected " + loaded.rejected() + " of " + loaded.lines() + " lines:");
+			loaded.rejects().forEach(r -> System.out.println("  " + r));
+		}
 		
-		long numberOfHomeTeams = matches.stream().map(FootballMatch::homeTeam).distinct().count();
-		long numberOfAwayTeams = matches.stream().map(FootballMatch::awayTeam).distinct().count();
-
-		int totalNumberOfHomeGoals = matches.stream().collect(Collectors.summingInt(FootballMatch::homeScore));
-		int totalNumberOfAwayGoals = matches.stream().collect(Collectors.summingInt(FootballMatch::awayScore));
-
-		String ss = "abc";
-		String ss2 = ss.toLowerCase();
-		
-		System.out.println("- contains " + numberOfHomeTeams + " home teams and " + numberOfAwayTeams + " away teams");
-		System.out.println("- " + totalNumberOfHomeGoals + " home goals and " + totalNumberOfAwayGoals + " away goals");
-		System.out.println("- average score " + Math.round(totalNumberOfHomeGoals*100.0/matches.size())/100.0 + "-" + Math.round(totalNumberOfAwayGoals*100.0/matches.size())/100.0 + "");
-
-		long totalNumberOfHomeWins = matches.stream().filter(fm -> fm.result() == FootballMatch.HorAResultType.HOME_WIN).count();
-		long totalNumberOfAwayWins = matches.stream().filter(fm -> fm.result() == FootballMatch.HorAResultType.AWAY_WIN).count();
-		long totalNumberOfDraws    = matches.stream().filter(fm -> fm.result() == FootballMatch.HorAResultType.DRAW).count();
-
-		System.out.println("- " + totalNumberOfHomeWins + " home wins, " + totalNumberOfAwayWins + " away wins and " + totalNumberOfDraws + " draws");
-
+		// Gather all the summary statistics in a single pass over the matches
 		String team = "Leicester";
-		Predicate<FootballMatch> pHome = fm -> fm.homeTeam().equalsIgnoreCase(team); 
-		Predicate<FootballMatch> pAway = fm -> fm.awayTeam().equalsIgnoreCase(team);
-		Predicate<FootballMatch> pHomeOrAway = pHome.or(pAway);
-		long teamHomeWins = matches.stream().filter(pHome).filter(fm -> fm.result() == FootballMatch.HorAResultType.HOME_WIN).count();
-		long teamAwayWins = matches.stream().filter(pAway).filter(fm -> fm.result() == FootballMatch.HorAResultType.AWAY_WIN).count();
-		long teamDraws    = matches.stream().filter(pHomeOrAway).filter(fm -> fm.result() == FootballMatch.HorAResultType.DRAW).count();
-
-		System.out.println("- " + team + " : " + teamHomeWins + " home wins, " + teamAwayWins + " away wins and " + teamDraws + " draws");
-		
-		Map<Integer, List<FootballMatch>> homeScoreMap = matches.stream().collect(Collectors.groupingBy(FootballMatch::homeScore));
-		Map<Integer, List<FootballMatch>> awayScoreMap = matches.stream().collect(Collectors.groupingBy(FootballMatch::awayScore));
-		Map<String, List<FootballMatch>> matchScoreMap = matches.stream().collect(Collectors.groupingBy(FootballMatch::matchScore));
+		MatchStatistics stats = matches.stream().collect(MatchStatistics.collector(team, names));
 
+		System.out.println("- contains " + stats.m_homeTeams.cardinality() + " home teams and " + stats.m_awayTeams.cardinality() + " away teams");
+		System.out.println("- " + stats.m_homeGoals + " home goals and " + stats.m_awayGoals + " away goals");
+		System.out.println("- average score " + Math.round(stats.m_homeGoals*100.0/matches.size())/100.0 + "-" + Math.round(stats.m_awayGoals*100.0/matches.size())/100.0 + "");
+		System.out.println("- " + stats.m_homeWins + " home wins, " + stats.m_awayWins + " away wins and " + stats.m_draws + " draws");
+		System.out.println("- " + team + " : " + stats.m_teamHomeWins + " home wins, " + stats.m_teamAwayWins + " away wins and " + stats.m_teamDraws + " draws");
+		
 		System.out.println();
 		System.out.println("Home goals scored frequencies: ");		
-		homeScoreMap.entrySet().stream().forEachOrdered(e -> System.out.println(e.getKey() + " goals : " + e.getValue().size() + " matches"));
+		stats.m_homeScoreFrequencies.entrySet().stream().forEachOrdered(e -> System.out.println(e.getKey() + " goals : " + e.getValue() + " matches"));
 		
 		System.out.println();
 		System.out.println("Away goals scored frequencies: ");
-		awayScoreMap.entrySet().stream().forEachOrdered(e -> System.out.println(e.getKey() + " goals : " + e.getValue().size() + " matches"));
+		stats.m_awayScoreFrequencies.entrySet().stream().forEachOrdered(e -> System.out.println(e.getKey() + " goals : " + e.getValue() + " matches"));
 
 		System.out.println();
 		System.out.println("Match score frequencies: ");
-		matchScoreMap.entrySet().stream().forEachOrdered(e -> System.out.println("Score " + e.getKey() + " : " + e.getValue().size() + " matches"));		
-
-		List<TeamSeason> lts = 
-		matches.stream()
-			.map(FootballMatch::teamResults)
-			.flatMap(x -> x.stream())
-			.collect(Collectors.groupingBy(FootballMatch.TeamResult::team))
-			.entrySet().stream()
-			.map(x -> TeamSeason.asTeamSeason(x.getKey(), x.getValue()))
-			.collect(Collectors.toList());
+		stats.m_matchScoreFrequencies.entrySet().stream().forEachOrdered(e -> System.out.println("Score " + e.getKey() + " : " + e.getValue() + " matches"));		
 
-		League league = new League("English Premier League", lts);
+		League league = buildLeague("English Premier League", matches);
 
 		System.out.println();
 		league.printTable();
@@ -102,6 +87,35 @@ public class FootballSeason {
 		System.out.println("Bottom of table:");
 		league.printBottomTable(5);
 
+		// Leagues for each division and season in the data - just the one here
+		SortedMap<LeagueKey, League> leagues = buildLeagues(matches.parallelStream());
+		System.out.println();
+		leagues.forEach((key, l) -> System.out.println(key + " : " + l.m_leaguePositions.size() + " teams, won by " + l.m_leaguePositions.get(0).teamSeason().team()));
+
+		// The same league from the matches held as columns, accumulated in arrays indexed by team id
+		MatchTable table = MatchTable.of(matches);
+		System.out.println();
+		System.out.println("Top of table from " + table.size() + " matches held as columns:");
+		table.league("English Premier League").printTopTable(5);
+		int teamId = table.teamId(team);
+		if(teamId >= 0) {
+			System.out.println("- " + team + " scored " + table.rowsForTeam(teamId).map(row -> table.homeTeamId(row) == teamId ? table.homeScore(row) : table.awayScore(row)).sum() + " goals");
+		}
+
+		// The league built up one match at a time, as results would arrive during the season
+		IncrementalLeague incremental = new IncrementalLeague("English Premier League");
+		for(FootballMatch fm : matches) {
+			incremental.add(fm);
+			if(incremental.matches() == matches.size() / 2) {
+				System.out.println();
+				System.out.println("Top of table at half way, after " + incremental.matches() + " matches:");
+				incremental.printTopTable(5);
+			}
+		}
+		System.out.println();
+		System.out.println("Bottom of table after " + incremental.matches() + " matches:");
+		incremental.printBottomTable(5);
+
 		System.out.println();
 		System.out.println("Stats:");
 		OptionalDouble odPoints = league.m_leaguePositions.stream().mapToInt(p -> p.teamSeason().m_points).average();
@@ -120,241 +134,255 @@ public class FootballSeason {
 		Exerciser.exerciseStreamGeneration(league);
 	}
 	
-	static List<FootballMatch> readResultsFile(String path) {
-
-		List<FootballMatch> l = null;
-		
-		try (Stream<String> stream = Files.lines(Paths.get(path))) {
+	// Group each team's results from the matches into a season summary for the team, and order the teams into a league
+	static League buildLeague(String name, Stream<FootballMatch> matches) {
+		return new League(name, teamSeasons(matches));
+	}
 
-//			l = stream.map(FootballMatch::fromLine).filter(fm -> fm != null).collect(Collectors.toList());		// Works
-			l = stream.map(FootballMatch::fromLine).filter(Objects::nonNull).collect(Collectors.toList());		// Also works
-			// Could also use skip to avoid first line
-			// But don't get a line number for error reporting using this method. If the source was a List, could use a stream based on  IntStream.range(0, list.size) to drive
-			// things. Also how to easily check for rejected lines when others are OK, apart from by checking resulting list size is the expected size.
+	// As above, also using the matches to separate teams which are level on points, goal difference and goals scored
+	static League buildLeague(String name, Collection<FootballMatch> matches) {
+		return matches.stream().collect(TeamSeason.seasonsWithResults()).league(name);
+	}
 
-		} catch (IOException e) {			
-			System.err.println("Failed to load data from file: " + e.getMessage());
-			return null;
-		}
-		
-		return l;
+	static List<TeamSeason> teamSeasons(Stream<FootballMatch> matches) {
+		return matches.collect(TeamSeason.collector());
 	}
-}
 
-class FootballMatch {
-	
-	enum HorAResultType {
-		HOME_WIN, AWAY_WIN, DRAW
+	// A league for each division and season in the matches. Each part of the stream gathers its matches straight into the seasons
+	// for their league, and the parts are merged in encounter order, so the form is the same however the matches were split. The
+	// leagues are then ordered in parallel. The map is ordered by division and season for reports.
+	//
+	// This partitions the matches itself rather than with groupingByConcurrent. That adds each match to a shared list for its league,
+	// locking the list, in whatever order the threads get there, so every league's matches would then have to be copied and sorted
+	// by date before the seasons were folded for the form to come out the same from run to run. Gathering each part sequentially and
+	// merging the parts in order gives that without the locks or the sort, and without holding the matches a second time.
+	static SortedMap<LeagueKey, League> buildLeagues(Stream<FootballMatch> matches) {
+		return matches.collect(Collector.of(LeagueSeasons::new, LeagueSeasons::add, LeagueSeasons::combine, LeagueSeasons::leagues));
 	}
 
-	String m_league;
-	String m_date;
-	String m_homeTeam;
-	String m_awayTeam;
-	int m_fullTimeHomeScore;
-	int m_fullTimeAwayScore;
-	HorAResultType m_fullTimeResult;
-	
-	String homeTeam() { return m_homeTeam; }
-	String awayTeam() { return m_awayTeam; }
-	int homeScore() { return m_fullTimeHomeScore; }
-	int awayScore() { return m_fullTimeAwayScore; }
-	String matchScore() { return homeScore() + "-" + awayScore(); }
-	HorAResultType result() { return m_fullTimeResult; }
-	
-	public String toString() {
-		return m_date + " " + m_homeTeam + " " + m_fullTimeHomeScore + "-" + m_fullTimeAwayScore + " " + m_awayTeam;
-	}	
-	static class TeamResult {
-		
-		enum ResultType {
-			WIN, LOSE, DRAW
+	// The seasons for each league, with the head-to-head results. Matches come mostly in runs from the same league, so the current
+	// league's seasons are kept to hand and the map is only looked in when the league changes.
+	static class LeagueSeasons {
+		Map<LeagueKey, TeamSeason.Seasons> m_leagues = new HashMap<>();
+		String m_lastDivision;
+		int m_lastSeason;
+		TeamSeason.Seasons m_last;
+
+		void add(FootballMatch fm) {
+			int season = LeagueKey.season(fm.dateKey());
+			if(m_last == null || season != m_lastSeason || !fm.m_league.equals(m_lastDivision)) {
+				m_last = m_leagues.computeIfAbsent(new LeagueKey(fm.m_league, season), k -> new TeamSeason.Seasons(true));
+				m_lastDivision = fm.m_league;
+				m_lastSeason = season;
+			}
+			m_last.add(fm);
 		}
 
-		FootballMatch m_match;
-		String m_team;
-		boolean m_home;
-		int m_goalsFor;
-		int m_goalsAgainst;
-		ResultType m_result;
-		
-		TeamResult(FootballMatch match, boolean isHome) {
-
-			m_match = match;
-			m_home = isHome;
-			m_team = isHome ? match.m_homeTeam : match.m_awayTeam;
-			m_goalsFor = isHome ? match.m_fullTimeHomeScore : match.m_fullTimeAwayScore;
-			m_goalsAgainst = isHome ? match.m_fullTimeAwayScore : match.m_fullTimeHomeScore;
-			m_result = m_goalsFor > m_goalsAgainst ? ResultType.WIN :
-							(m_goalsFor < m_goalsAgainst ? ResultType.LOSE : ResultType.DRAW); 
-		}
-		
-		String team() { return m_team; }
-		int goalsFor() { return m_goalsFor; }
-		int goalsAgainst() { return m_goalsAgainst; }
-		
-		int points() {
-			switch(m_result) {
-				case WIN : return 3;
-				case DRAW : return 1;
-				default: return 0;
-			}
+		// Adds in the leagues from the part of the stream after this one
+		LeagueSeasons combine(LeagueSeasons later) {
+			later.m_leagues.forEach((key, seasons) -> m_leagues.merge(key, seasons, TeamSeason.Seasons::combine));
+			return this;
 		}
-		
-		public String toString() {
-			return m_team + " " + m_result.toString() + "   " + m_match;
+
+		SortedMap<LeagueKey, League> leagues() {
+			return
+			m_leagues.entrySet().parallelStream()
+				.collect(Collectors.toMap(
+							Map.Entry::getKey,
+							e -> e.getValue().league(e.getKey().toString()),
+							(x, y) -> x,
+							TreeMap::new));
 		}
 	}
-	
-	List<TeamResult> teamResults() {
-		List<TeamResult> l = new ArrayList<>();
-		l.add(new TeamResult(this, true));
-		l.add(new TeamResult(this, false));
-		return l;
-	}
-	
-	// Div,Date,HomeTeam,AwayTeam,FTHG,FTAG,FTR,HTHG,HTAG,HTR,Referee,...
-	// E0,13/08/16,Burnley,Swansea,0,1,A,0,0,D,J Moss,...
-	// E0,13/08/16,Crystal Palace,West Brom,0,1,A,0,0,D,...
 
-	static FootballMatch fromLine(String line) {
-		// Ignore headings and blank lines
-		
-		if(line.trim().length() == 0) return null;
-		if(line.startsWith("Div,Date")) return null;
-		
-		String fields[] = line.split(",");	// Assume no commas in data, no quotes around values, no trimming of fields needed
-		if(fields.length < 10) {
-			System.err.println("Error - data line with insufficient fields: " + line);
-			return null;
+	// Follow results as they arrive, keeping the league table up to date and printing the top of it at intervals
+	static void streamResults(String source, long intervalMillis) {
+		FootballMatch.Names names = new FootballMatch.Names();
+		IncrementalLeague league = new IncrementalLeague("League");
+		StreamingAggregate<FootballMatch> aggregate = new StreamingAggregate<FootballMatch>() {
+			public void add(FootballMatch fm) {
+				league.add(fm);
+			}
+
+			public void publish() {
+				System.out.println();
+				System.out.println("Top of table after " + league.matches() + " matches:");
+				league.printTopTable(5);
+			}
+		};
+
+		StreamingIngestor<FootballMatch> ingestor = new StreamingIngestor<>(names::fromLine, aggregate, intervalMillis);
+		try (BufferedReader reader = StreamingIngestor.open(source, StandardCharsets.UTF_8)) {
+			ingestor.run(reader);
+		} catch (IOException e) {
+			System.err.println("Failed to read results: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		System.out.println();
+		System.out.println("Streamed " + ingestor);
+	}
+
+	// The matches are named from names, which can be shared with other files loaded for the same set of matches
+	static LoadResult<FootballMatch> readResultsFile(String path, FootballMatch.Names names) {
+
+		LoadResult<FootballMatch> l = null;
 		
-		FootballMatch fm = new FootballMatch();
-		fm.m_league = fields[0];
-		fm.m_date = fields[1];
-		fm.m_homeTeam = fields[2];
-		fm.m_awayTeam = fields[3];
 		try {
-			fm.m_fullTimeHomeScore = Integer.parseInt(fields[4]);
-			fm.m_fullTimeAwayScore = Integer.parseInt(fields[5]);
-		} catch(Exception e) {
-			System.err.println("Error parsing data line - invalid score " + line);
+
+			// Originally a sequential Files.lines stream:
+			//	l = Files.lines(Paths.get(path)).map(FootballMatch::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
+			// now memory-mapped and parsed in parallel chunks, keeping the file order. Rejected lines come back with their line numbers
+			// in the result rather than being reported from each thread as they are found.
+			l = ChunkedFileLoader.load(Paths.get(path), StandardCharsets.UTF_8, names::fromLine);
+
+		} catch (IOException e) {			
+			System.err.println("Failed to load data from file: " + e.getMessage());
 			return null;
 		}
 		
-		switch(fields[6]) {
-			case "H" : fm.m_fullTimeResult = HorAResultType.HOME_WIN; break;
-			case "A" : fm.m_fullTimeResult = HorAResultType.AWAY_WIN; break;
-			case "D" : fm.m_fullTimeResult = HorAResultType.DRAW; break;
-			default : fm.m_fullTimeResult = null;
-		};
-		
-		if(fm.m_fullTimeResult == null) {
-			System.err.println("Error parsing data line - invalid result" + line);
-			return null;			
-		}
-		
-		return fm;
+		return l;
 	}
-	
 }
 
-class TeamSeason {
-	String m_team;
-	int m_played;
-	int m_points;
-	int m_for;
-	int m_against;
-	
-	// Add in wins, losses, draws, to produce a complete summary for the team
+/**
+ * Summary statistics for a set of matches, gathered in a single pass rather than streaming the matches once per statistic. Usable as a 
+ * collector on parallel streams, with partial statistics combined at the end.  
+ */
+class MatchStatistics {
+
+	String m_team;							// Team to gather team-specific statistics for
+	long m_matches;
+	int m_teamId;
+	BitSet m_homeTeams;			// Team ids
+	BitSet m_awayTeams;
+	int m_homeGoals;
+	int m_awayGoals;
+	long m_homeWins;
+	long m_awayWins;
+	long m_draws;
+	long m_teamHomeWins;
+	long m_teamAwayWins;
+	long m_teamDraws;
+	Map<Integer, Long> m_homeScoreFrequencies;
+	Map<Integer, Long> m_awayScoreFrequencies;
+	Map<String, Long> m_matchScoreFrequencies;
+
+	MatchStatistics(String team, FootballMatch.Names names) {
+		m_team = team;
+		m_matches = 0;
+		m_teamId = names.teamId(team);
+		m_homeTeams = new BitSet();
+		m_awayTeams = new BitSet();
+		m_homeGoals = 0;
+		m_awayGoals = 0;
+		m_homeWins = 0;
+		m_awayWins = 0;
+		m_draws = 0;
+		m_teamHomeWins = 0;
+		m_teamAwayWins = 0;
+		m_teamDraws = 0;
+		m_homeScoreFrequencies = new TreeMap<>();
+		m_awayScoreFrequencies = new TreeMap<>();
+		m_matchScoreFrequencies = new TreeMap<>();
+	}
 
-	String team() { return m_team; }
-	int played() { return m_played; }
-	int points() { return m_points; }
-	int goalDifference() { return m_for - m_against; }
-	
-	public String toString() {
-		return m_team + " played = " + played() + " points=" + points() + " gd=" + goalDifference();
+	// The team is looked up in the names the matches were loaded with
+	static Collector<FootballMatch, MatchStatistics, MatchStatistics> collector(String team, FootballMatch.Names names) {
+		return Collector.of(() -> new MatchStatistics(team, names), MatchStatistics::accept, MatchStatistics::combine, Collector.Characteristics.UNORDERED);
 	}
-	
-	static TeamSeason asTeamSeason(String team, List<FootballMatch.TeamResult> lResults) {
-		TeamSeason ts = new TeamSeason();
-		ts.m_team = team;
-		// Combine collection below rather than three separate steps.
-		ts.m_played = (int)lResults.stream().count();
-		ts.m_points = lResults.stream().collect(Collectors.summingInt(FootballMatch.TeamResult::points));
-		ts.m_for = lResults.stream().collect(Collectors.summingInt(FootballMatch.TeamResult::goalsFor));
-		ts.m_against = lResults.stream().collect(Collectors.summingInt(FootballMatch.TeamResult::goalsAgainst));		
-		return ts;
+
+	void accept(FootballMatch fm) {
+		m_matches++;
+		m_homeTeams.set(fm.homeTeamId());
+		m_awayTeams.set(fm.awayTeamId());
+		m_homeGoals += fm.homeScore();
+		m_awayGoals += fm.awayScore();
+
+		boolean teamAtHome = fm.homeTeamId() == m_teamId;
+		boolean teamAway = fm.awayTeamId() == m_teamId;
+		switch(fm.result()) {
+			case HOME_WIN : m_homeWins++; if(teamAtHome) m_teamHomeWins++; break;
+			case AWAY_WIN : m_awayWins++; if(teamAway) m_teamAwayWins++; break;
+			case DRAW : m_draws++; if(teamAtHome || teamAway) m_teamDraws++; break;
+		}
+
+		m_homeScoreFrequencies.merge(fm.homeScore(), 1L, Long::sum);
+		m_awayScoreFrequencies.merge(fm.awayScore(), 1L, Long::sum);
+		m_matchScoreFrequencies.merge(fm.matchScore(), 1L, Long::sum);
+	}
+
+	MatchStatistics combine(MatchStatistics other) {
+		m_matches += other.m_matches;
+		m_homeTeams.or(other.m_homeTeams);
+		m_awayTeams.or(other.m_awayTeams);
+		m_homeGoals += other.m_homeGoals;
+		m_awayGoals += other.m_awayGoals;
+		m_homeWins += other.m_homeWins;
+		m_awayWins += other.m_awayWins;
+		m_draws += other.m_draws;
+		m_teamHomeWins += other.m_teamHomeWins;
+		m_teamAwayWins += other.m_teamAwayWins;
+		m_teamDraws += other.m_teamDraws;
+		other.m_homeScoreFrequencies.forEach((k, v) -> m_homeScoreFrequencies.merge(k, v, Long::sum));
+		other.m_awayScoreFrequencies.forEach((k, v) -> m_awayScoreFrequencies.merge(k, v, Long::sum));
+		other.m_matchScoreFrequencies.forEach((k, v) -> m_matchScoreFrequencies.merge(k, v, Long::sum));
+		return this;
 	}
 }
 
-class League {
+// A division in a season, such as E0 2016-17. Seasons start in July.
+class LeagueKey implements Comparable<LeagueKey> {
 
-	// Add league ordering comparator
-	
-	static String tableHeading() {
-		Formatter fmt = new Formatter();
-		fmt.format("%3.3s %-20.20s %10.10s %10.10s %10.10s", "Pos", "Team", "Played", "Goal diff", "Points");
-		String s = fmt.toString();
-		fmt.close();
-		return s;
+	static final int UNKNOWN_SEASON = -1;
+
+	String m_division;
+	int m_season;				// Year the season starts
+
+	LeagueKey(String division, int season) {
+		m_division = division;
+		m_season = season;
 	}
-	
-	static String tableRow(TeamSeasonPosition tsp) {
-		int pos = tsp.m_position;
-		TeamSeason ts = tsp.m_teamSeason;
-		Formatter fmt = new Formatter();
-		fmt.format("%3d %-20.20s %10d %10d %10d", pos, ts.team(), ts.played(), ts.goalDifference(), ts.points());
-		String s = fmt.toString();
-		fmt.close();
-		return s;
+
+	static LeagueKey of(FootballMatch fm) {
+		return new LeagueKey(fm.m_league, season(fm.dateKey()));
 	}
 
-	static class TeamSeasonPosition implements Comparable<TeamSeasonPosition> {
-		TeamSeason m_teamSeason;
-		int m_position;
-		
-		TeamSeasonPosition(TeamSeason ts, int position) {
-			m_teamSeason = ts;
-			m_position = position;
-		}
-		
-		int position() { return m_position; }
-		TeamSeason teamSeason() { return m_teamSeason; }
-		
-		public String toString() {
-			return "Position = " + position() + " : " + m_teamSeason.toString();
-		}
-		
-		public int compareTo(TeamSeasonPosition tsp2) {
-			return this.position() - tsp2.position();
+	// Season for a yyyymmdd date key, or UNKNOWN_SEASON if the date wasn't valid
+	static int season(int dateKey) {
+		if(dateKey == 0) {
+			return UNKNOWN_SEASON;
 		}
+		int year = dateKey / 10000;
+		int month = (dateKey / 100) % 100;
+		return month >= 7 ? year : year - 1;
 	}
-	
-	String m_name;
-	List<TeamSeasonPosition> m_leaguePositions;
-	static Comparator<TeamSeason> s_leagueOrdering = Comparator.comparing(TeamSeason::points).thenComparing(TeamSeason::goalDifference).reversed();
-	
-	League(String name, List<TeamSeason> ts) {
-		// Sort the league, and put in order into a list
-		List<TeamSeason> lSorted = ts.stream().sorted(s_leagueOrdering).collect(Collectors.toList());		
-		m_leaguePositions = IntStream.rangeClosed(1, lSorted.size()).mapToObj(pos -> new TeamSeasonPosition(lSorted.get(pos-1), pos)).collect(Collectors.toList());
+
+	String division() { return m_division; }
+	int season() { return m_season; }
+
+	public int compareTo(LeagueKey other) {
+		int c = m_division.compareTo(other.m_division);
+		return c != 0 ? c : Integer.compare(m_season, other.m_season);
 	}
 
-	void printTable() {
-		System.out.println(League.tableHeading());
-		m_leaguePositions.stream().forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	public boolean equals(Object o) {
+		if(!(o instanceof LeagueKey)) {
+			return false;
+		}
+		LeagueKey other = (LeagueKey)o;
+		return m_season == other.m_season && m_division.equals(other.m_division);
 	}
 
-	void printTopTable(int length) {
-		System.out.println(League.tableHeading());
-		m_leaguePositions.stream().limit(length).forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	public int hashCode() {
+		return m_division.hashCode() * 31 + m_season;
 	}
 
-	void printBottomTable(int length) {
-		System.out.println(League.tableHeading());
-		m_leaguePositions.stream().skip(m_leaguePositions.size() - length).forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	public String toString() {
+		if(m_season == UNKNOWN_SEASON) {
+			return m_division + " unknown season";
+		}
+		return m_division + " " + m_season + "-" + String.format("%02d", (m_season + 1) % 100);
 	}
 }
 
@@ -1,44 +1,65 @@
 package streams;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.Map;
+import java.util.Collections;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Collector;
 import java.util.stream.Stream;
 import java.util.stream.IntStream;
 import java.util.IntSummaryStatistics;
-import java.util.Formatter;
+import java.util.Iterator;
 
 public class GeneralElection {
 
 	public static void main(String argv[]) {
 
+		// The main parties, and the countries of those which stand in just one
+		PartyRegistry registry = readPartiesFile("data\\UKParties.csv");
+
+		// GeneralElection -stream <file, or - for standard input> [snapshot interval in milliseconds]
+		if(argv.length >= 2 && argv[0].equals("-stream")) {
+			streamResults(argv[1], argv.length >= 3 ? Long.parseLong(argv[2]) : 1000, registry);
+			return;
+		}
+
 		// Data file from http://www.football-data.co.uk/englandm.php - see notes.txt in data folder		
-		List<CandidateResult> results = readResultsFile("data\\UKGeneralElection2017.csv");
+		LoadResult<CandidateResult> loaded = readResultsFile("data\\UKGeneralElection2017.csv", new CandidateResult.Names());
 		
-		if(results == null) return;
+		if(loaded == null) return;
 		
+		List<CandidateResult> results = loaded.records();
 		System.out.println("Read in " + results.size() + " candidate results");
+		if(loaded.rejected() > 0) {
+			System.out.println("- rejected " + loaded.rejected() + " of " + loaded.lines() + " lines:");
+			loaded.rejects().forEach(r -> System.out.println("  " + r));
+		}
 		
-		long constituencyCount = results.stream().map(CandidateResult::constituency).distinct().count();
-		long parties = results.stream().map(CandidateResult::partyIdentifier).distinct().count();
+		long constituencyCount = results.stream().mapToInt(CandidateResult::constituencyId).distinct().count();
+		long parties = results.stream().mapToInt(CandidateResult::partyId).distinct().count();
 		long candidateSurnames = results.stream().map(CandidateResult::surname).distinct().count();
 		long candidateFirstNames = results.stream().map(CandidateResult::firstName).distinct().count();
 		long candidateNames = results.stream().map(cr -> cr.firstName() + " " + cr.surname()).distinct().count();
@@ -66,12 +87,7 @@ public class GeneralElection {
 		}
 		
 		// Generate a set of constituencies
-		List<Constituency> constituencies = 
-		results.stream()
-			.collect(Collectors.groupingBy(CandidateResult::constituency))
-			.entrySet().stream()
-			.map(x -> Constituency.asConstituency(x.getKey(), x.getValue()))
-			.collect(Collectors.toList());
+		List<Constituency> constituencies = buildConstituencies(results.stream(), registry);
 
 		System.out.println("Generated " + constituencies.size() + " constituencies");
 		System.out.println();
@@ -90,29 +106,23 @@ public class GeneralElection {
 			}
 		}
 		
-		// Constituencies with smallest number of votes for the winner
-		System.out.println();
-		constituencies.stream().sorted(Comparator.comparing(Constituency::winningVotes)).limit(10).forEachOrdered(System.out::println);
-
-		// Constituencies with largest number of votes for the winner
-		System.out.println();
-		constituencies.stream().sorted(Comparator.comparing(Constituency::winningVotes).reversed()).limit(10).forEachOrdered(System.out::println);
-
-		// Constituencies with the smallest majority
-		System.out.println();
-		constituencies.stream().sorted(Comparator.comparing(Constituency::majority)).limit(10).forEachOrdered(System.out::println);
-
-		// Constituencies where the winner has the smallest proportion of the vote
-		System.out.println();
-		constituencies.stream().sorted(Comparator.comparing(Constituency::winningShare)).limit(10).forEachOrdered(System.out::println);
-
-		// Constituencies where the last-placed candidate has the largest proportion of the vote
+		// Rank the constituencies several ways in a single pass, keeping just the top 10 of each rather than sorting them all each time
+		List<List<Constituency>> rankings = constituencies.stream().collect(TopK.rankings(10,
+				Comparator.comparingInt(Constituency::winningVotes),				// Smallest number of votes for the winner
+				Comparator.comparingInt(Constituency::winningVotes).reversed(),		// Largest number of votes for the winner
+				Comparator.comparingInt(Constituency::majority),					// Smallest majority
+				Comparator.comparingDouble(Constituency::winningShare),				// Winner has the smallest proportion of the vote
+				Comparator.comparingDouble(Constituency::losingShare).reversed()));	// Last-placed candidate has the largest proportion of the vote
+
+		for(int i = 0; i < 4; i++) {
+			System.out.println();
+			rankings.get(i).forEach(System.out::println);
+		}
 		System.out.println();
-		constituencies.stream().sorted(Comparator.comparing(Constituency::losingShare).reversed()).limit(10)
-				.forEachOrdered(c -> System.out.println(c.toString() + " [ " + Math.round(c.losingShare()) + "% " + c.m_results.get(c.m_results.size()-1) + "]"));
+		rankings.get(4).forEach(c -> System.out.println(c.toString() + " [ " + Math.round(c.losingShare()) + "% " + c.lastPlace() + "]"));
 
-		// Map<String, PartyResult> mParties = lConstituencies.stream().parallel().collect(PartyResult.ResultCollector.getCollector());
-		Map<String, PartyResult> mParties = constituencies.stream().collect(PartyResult.ResultCollector.getCollector());
+		// Map<String, PartyResult> mParties = constituencies.stream().collect(PartyResult.ResultCollector.getCollector());
+		Map<String, PartyResult> mParties = constituencies.parallelStream().collect(PartyResult.ConcurrentResultCollector.getCollector());
 		System.out.println();
 		List<PartyResult> lParties = mParties.values().stream().sorted((x,y) -> y.m_wins - x.m_wins).collect(Collectors.toList());
 		System.out.println("Produced party result for " + mParties.size() + " parties");
@@ -121,23 +131,58 @@ public class GeneralElection {
 		lParties.stream().filter(p -> p.m_wins > 0 || p.m_votes >= 100000).forEachOrdered(System.out::println);
 		
 		// Use elsewhere via CSV dump
-		dumpOutputFile(results, constituencies);
+		dumpOutputFile(results, constituencies, registry);
 	}
 
-	static List<CandidateResult> readResultsFile(String path) {
+	// The parties can be set up from a file, falling back on the built-in list for 2017
+	static PartyRegistry readPartiesFile(String path) {
+		if(new File(path).exists()) {
+			try {
+				return PartyRegistry.load(Paths.get(path), StandardCharsets.ISO_8859_1);
+			} catch (IOException e) {
+				System.err.println("Failed to load parties from file, using the built-in list: " + e.getMessage());
+			}
+		}
+		return PartyRegistry.defaults();
+	}
 
-		List<CandidateResult> l = null;
+	static List<Constituency> buildConstituencies(Stream<CandidateResult> results, PartyRegistry registry) {
+		return
+		results
+			.collect(Collectors.groupingBy(CandidateResult::constituencyId, Constituency.collector(registry)))
+			.values().stream()
+			.collect(Collectors.toList());
+	}
+
+	// Follow results as they arrive, keeping the party totals up to date and printing them at intervals
+	static void streamResults(String source, long intervalMillis, PartyRegistry registry) {
+		StreamingPartyResults parties = new StreamingPartyResults(registry);
+		CandidateResult.Names names = new CandidateResult.Names();
+		StreamingIngestor<CandidateResult> ingestor = new StreamingIngestor<>(names::fromLine, parties, intervalMillis);
+		try (BufferedReader reader = StreamingIngestor.open(source, StandardCharsets.ISO_8859_1)) {
+			ingestor.run(reader);
+		} catch (IOException e) {
+			System.err.println("Failed to read results: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.out.println();
+		System.out.println("Streamed " + ingestor);
+	}
+
+	static LoadResult<CandidateResult> readResultsFile(String path, CandidateResult.Names names) {
+
+		LoadResult<CandidateResult> l = null;
 		
 		// Not clear what the characterset of the soorce file is. Default for Files.lines is UTF-8, which causes a Malformed exception
 		// to be reported from a buffered reader. This seems to arise on a line with a smart quote:
 		// 	E14000543,31,Barrow and Furness,O’HARA,Robert  (Known As Rob),Green Party,Green Party,375
 		// Using ISO_8859_1 doesn't crash, but the smart quote doesn't come through. Not clear if other characters meet the same fate.
 		
-		try (Stream<String> stream = Files.lines(Paths.get(path), StandardCharsets.ISO_8859_1)) {
-//		try (Stream<String> stream = Files.lines(Paths.get(path), StandardCharsets.UTF_8)) {
-
-			l = stream.map(CandidateResult::fromLine).filter(Objects::nonNull).collect(Collectors.toList());
-//			stream.peek(System.out::println).forEachOrdered(System.out::println);
+		// The file is memory-mapped and parsed in parallel chunks, keeping the file order, with any rejected lines and their line numbers
+		// returned in the result
+		try {
+			l = ChunkedFileLoader.load(Paths.get(path), StandardCharsets.ISO_8859_1, names::fromLine);
 		} catch (IOException e) {			
 			System.err.println("Failed to load data from file: " + e.getMessage());
 			return null;
@@ -146,7 +191,7 @@ public class GeneralElection {
 		return l;
 	}
 	
-	static void dumpOutputFile(List<CandidateResult> results, List<Constituency> constituencies) {
+	static void dumpOutputFile(List<CandidateResult> results, List<Constituency> constituencies, PartyRegistry registry) {
 		
 		// Augment each candidate-result record with some derived info, and then output a CSV file with this extended information.
 		// - did the candidate win or lose, and what was the position number, how many candidates were there ? 
@@ -154,35 +199,47 @@ public class GeneralElection {
 		// - which country is the constituency in
 		// - a simplified party identifier, covering lots of smaller parties with 'Other'
 		
-		List<AugmentedCandidateResult> l = constituencies.stream().flatMap(c-> AugmentedCandidateResult.augmentResultsForConstituency(c).stream()).collect(Collectors.toList());
+		// The rows are written as they are produced, one constituency at a time, rather than gathered into one String first
 		System.out.println();
-		System.out.println("Produced " + l.size() + " augmented results");
+		System.out.println("Producing " + constituencies.stream().mapToInt(Constituency::candidates).sum() + " augmented results");
 		System.out.println();
 		
-		String nl = System.lineSeparator();
-		StringBuilder sb = new StringBuilder();
-		sb.append(AugmentedCandidateResult.toCSVHeader()).append(nl);
-		l.stream().limit(10000).forEachOrdered(a -> sb.append(a.toCSV()).append(nl));
-		
 		String outputFolderName = "output";
 		String outputFileName = outputFolderName + "/" + "ExtendedUKGeneralElection2017.csv";
 		File logsFolder = new File(outputFolderName);
 		if(logsFolder.exists() && logsFolder.isDirectory() && logsFolder.canWrite()) {
-			System.out.println("Augmented CSV file produced in file: " + outputFileName);
-			writeFile(outputFileName, sb.toString());
+			long rows = writeOutputFile(outputFileName, constituencies.stream(), registry);
+			if(rows >= 0) {
+				System.out.println("Augmented CSV file of " + rows + " results produced in file: " + outputFileName);
+			}
 		}
 		else {
 			System.out.println("No augmented CSV file produced - no " + outputFolderName + " folder present");
 		}
 	}
 
-	private static void writeFile(String filename, String s) {
+	// Writes the augmented results for each constituency in turn, returning the number of rows written, or -1 if the write failed
+	static long writeOutputFile(String filename, Stream<Constituency> constituencies, PartyRegistry registry) {
+		String nl = System.lineSeparator();
 	    try (BufferedWriter bw = Files.newBufferedWriter(new File(filename).toPath(), StandardCharsets.ISO_8859_1)) {
-			bw.write(s, 0, s.length());
-//			bw.newLine();
+			bw.write(AugmentedCandidateResult.toCSVHeader());
+			bw.write(nl);
+			StringBuilder row = new StringBuilder(256);
+			long rows = 0;
+			Iterator<Constituency> it = constituencies.iterator();
+			while(it.hasNext()) {
+				for(AugmentedCandidateResult a : AugmentedCandidateResult.augmentResultsForConstituency(it.next(), registry)) {
+					row.setLength(0);
+					a.appendCSV(row).append(nl);
+					bw.append(row);
+					rows++;
+				}
+			}
+			return rows;
 	    }
-	    catch(Exception e) {
+	    catch(IOException e) {
 	        System.err.println("Failed to write to: " + filename + " " + e.getMessage());
+	        return -1;
 	    }
 	}
 }
@@ -194,54 +251,59 @@ class CandidateResult {
 	// E14000530,7,Aldershot,WALLACE,Donna Maria,Green Party,Green Party,1090
 	// E14000530,7,Aldershot,SWALES,John Roy,UK Independence Party (UKIP),UKIP,1796
 
-	static CandidateResult fromLine(String line) {
+	static ThreadLocal<CsvTokenizer> s_tokenizer = ThreadLocal.withInitial(CsvTokenizer::new);
+
+	// The constituency and party names for a set of results, shared by the results, with ids for grouping and comparing on. Each
+	// set of results has its own, held by whatever loads them, so the names are freed along with the results.
+	static class Names {
+		SymbolTable m_constituencies = new SymbolTable();
+		SymbolTable m_parties = new SymbolTable();
+
+		CandidateResult fromLine(String line) {
+			return CandidateResult.fromLine(line, this, reason -> System.err.println("Error - " + reason + ": " + line));
+		}
+
+		// As a RecordParser, for loaders
+		CandidateResult fromLine(String line, Consumer<String> reject) {
+			return CandidateResult.fromLine(line, this, reject);
+		}
+	}
+
+	// Lines which can't be parsed are passed to reject with the reason, rather than reported here
+	static CandidateResult fromLine(String line, Names names, Consumer<String> reject) {
+		CsvTokenizer csv = s_tokenizer.get();
+
 		// Ignore headings and blank lines
 
 		if(line.trim().length() == 0) return null;
 		if(line.startsWith("RESULTS")) return null;
 		if(line.startsWith("ONS Code")) return null;
 		
-		String fields[] = line.split(",");	// Assume no commas in data, no quotes around values, no trimming of fields needed
-		if(fields.length < 8) {
-			System.err.println("Error - data line with insufficient fields: " + line);
+		// Some fields contain commas, protected by double quotes around the field, e.g. "Birmingham, Edgbaston"
+		if(!csv.tokenize(line, 8)) {
+			reject.accept("invalid CSV data line: " + csv.error());
 			return null;
 		}
-		else if(fields.length > 8 && line.indexOf("\"") != -1) {
-			// Not simple comma-separated, some non-separator commas are being protected by double quotes around a field.
-			// Are there any cases with more than one pair of double quotes ?
-			if(line.length() != line.replaceAll("\"",  "").length()+2) {
-				System.err.println("Complex Protected line ignored: " + line);
-				return null;
-			}
-			else {
-				String quotedField = line.substring(line.indexOf("\""), line.lastIndexOf("\"")+1);
-				String line2 = line.replace(quotedField, quotedField.replaceAll(",", "@"));
-				String fields2[] = line2.split(",");
-				if(fields2.length != 8) {
-					System.err.println("Error - processing protected line failed: " + line);
-					return null;
-				} else {
-					for(int i = 0; i < fields2.length; i++) {
-						fields2[i] = fields2[i].replaceAll("@", ",");		// Stream way of doing this ?
-					}
-					fields = fields2;
-				}
-			}			
+		if(csv.fieldCount() < 8) {
+			reject.accept("data line with insufficient fields");
+			return null;
 		}
 		
 		CandidateResult cr = new CandidateResult();
 		
-		cr.m_ONSCode = fields[0].trim();
-		cr.m_PANO = fields[1].trim();
-		cr.m_constituency = fields[2].trim();
-		cr.m_surname = fields[3].trim();
-		cr.m_firstname = fields[4].trim();
-		cr.m_party = fields[5].trim();
-		cr.m_partyIdentifier = fields[6].trim();
+		cr.m_ONSCode = csv.trimmedField(0);
+		cr.m_PANO = csv.trimmedField(1);
+		cr.m_constituencyId = names.m_constituencies.id(csv.trimmedField(2));
+		cr.m_constituency = names.m_constituencies.name(cr.m_constituencyId);
+		cr.m_surname = csv.trimmedField(3);
+		cr.m_firstname = csv.trimmedField(4);
+		cr.m_party = csv.trimmedField(5);
+		cr.m_partyId = names.m_parties.id(csv.trimmedField(6));
+		cr.m_partyIdentifier = names.m_parties.name(cr.m_partyId);
 		try {
-			cr.m_votes = Integer.parseInt(fields[7]);
-		} catch(Exception e) {
-			System.err.println("Error parsing data line - invalid data: " + line);
+			cr.m_votes = csv.intField(7);
+		} catch(NumberFormatException e) {
+			reject.accept("invalid votes: " + e.getMessage());
 			return null;
 		}		
 		
@@ -256,8 +318,12 @@ class CandidateResult {
 	String m_party;				// Full of inconsistencies
 	String m_partyIdentifier;
 	int m_votes;
+	int m_constituencyId;
+	int m_partyId;
 	
 	String constituency() { return m_constituency; }
+	int constituencyId() { return m_constituencyId; }
+	int partyId() { return m_partyId; }
 	String surname() { return m_surname; }
 	String firstName() { return m_firstname; }
 	String party() { return m_party; }
@@ -281,50 +347,29 @@ class AugmentedCandidateResult {
 	String m_country;
 	
 	// Produce a list of augmented results for a constituency
-	static List<AugmentedCandidateResult> augmentResultsForConstituency(Constituency constituency) {		
+	static List<AugmentedCandidateResult> augmentResultsForConstituency(Constituency constituency, PartyRegistry registry) {		
 		List<AugmentedCandidateResult> l = 
-				IntStream.rangeClosed(1, constituency.m_results.size())
-				.mapToObj(pos -> new AugmentedCandidateResult(constituency, pos, constituency.m_results.get(pos-1)))
+				IntStream.rangeClosed(1, constituency.candidates())
+				.mapToObj(pos -> new AugmentedCandidateResult(constituency, pos, constituency.results().get(pos-1), registry))
 				.collect(Collectors.toList());
 		return l;
 	}
 	
-	AugmentedCandidateResult(Constituency constituency, int position, CandidateResult result) {
+	AugmentedCandidateResult(Constituency constituency, int position, CandidateResult result, PartyRegistry registry) {
 		m_basicResult = result;
 		m_position = position;
 		m_outcome = (position == 1) ? "Winner" : "Loser";
 		m_voteShare = result.m_votes * 1.0 / constituency.m_totalVotes; 
 		m_majority = (position == 1) ? constituency.m_majority : 0;
-		m_simplifiedParty = simplifyParty();
-		m_numCandidates = constituency.m_results.size();
+		m_simplifiedParty = simplifyParty(registry);
+		m_numCandidates = constituency.candidates();
 		m_country = constituency.country().toString();
 	}
 
-	// List of main parties, allowing an 'Other' category to be used to cover everyone else
-	static List<String> s_keepParties = Arrays.asList("Conservative", "Labour", "Liberal Democrats", "SNP", "UKIP", "Green Party", 
-													  "DUP", "Sinn Féin", "Plaid Cymru", "SDLP", "UUP", "Alliance", "Independent");
-	String simplifyParty() {
-		String sp = "";
-		if(m_position == 1) {
-			// Keep the party name for winners
-			sp = m_basicResult.m_partyIdentifier;
-		} else {
-			// Convert non-mainstream party names to 'Other'
-			long matches = s_keepParties.stream().filter(s -> s.equalsIgnoreCase(m_basicResult.m_partyIdentifier)).count();
-			if(matches == 1) {
-				sp = m_basicResult.m_partyIdentifier;
-			}
-			else {
-				sp = "Other";
-			}
-		}
-
-		// Remove trailing word 'Party' if present
-		sp = sp.trim();
-		if(sp.endsWith("Party")) {
-			sp = sp.replaceAll("Party", "").trim();
-		}
-		return sp;
+	// Main parties keep their name, without any trailing word 'Party', and everyone else comes under 'Other' - apart from winners,
+	// who keep their party name
+	String simplifyParty(PartyRegistry registry) {
+		return registry.simplifiedName(m_basicResult.m_partyIdentifier, m_position == 1);
 	}
 	
 	// Generate CSV output for the augmented result records
@@ -352,7 +397,10 @@ class AugmentedCandidateResult {
 	}
 	
 	String toCSV() {
-		StringBuilder sb = new StringBuilder();
+		return appendCSV(new StringBuilder()).toString();
+	}
+
+	StringBuilder appendCSV(StringBuilder sb) {
 		CandidateResult r = m_basicResult;
 		// Output same fields as in the original file, separated by commas, protected by doublequotes if the item contains a comma
 		sb.append(protect(r.m_ONSCode)).append(",");
@@ -366,13 +414,36 @@ class AugmentedCandidateResult {
 		// Append augmented fields
 		sb.append(m_position).append(",");
 		sb.append(m_outcome).append(",");
-		Formatter fmt = new Formatter(); sb.append(fmt.format("%.3f",  m_voteShare).toString()).append(","); fmt.close();
+		appendDecimal3(sb, m_voteShare).append(",");
 		sb.append(m_majority).append(",");
 		sb.append(m_numCandidates).append(",");
 		sb.append(m_simplifiedParty).append(",");
 		sb.append(m_country);
 
-		return sb.toString();
+		return sb;
+	}
+
+	// Appends the value to 3 decimal places, rounding half up, as String.format("%.3f") would but without creating a Formatter for
+	// each value, and always with a '.' rather than the default locale's decimal separator. Values within a rounding error of a
+	// halfway point, or too large to scale to a long, go through BigDecimal to round exactly as the Formatter does.
+	static StringBuilder appendDecimal3(StringBuilder sb, double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			return sb.append(value);
+		}
+		double scaled = Math.abs(value) * 1000;
+		double fraction = scaled - Math.floor(scaled);
+		if(scaled >= 1e15 || Math.abs(fraction - 0.5) < 1e-6) {
+			return sb.append(new BigDecimal(Double.toString(value)).setScale(3, RoundingMode.HALF_UP).toPlainString());
+		}
+		long thousandths = Math.round(scaled);
+		if(Double.doubleToRawLongBits(value) < 0) {		// Sign bit, so -0.0 keeps its sign as with Formatter
+			sb.append('-');
+		}
+		long fractionDigits = thousandths % 1000;
+		sb.append(thousandths / 1000).append('.');
+		if(fractionDigits < 100) sb.append('0');
+		if(fractionDigits < 10) sb.append('0');
+		return sb.append(fractionDigits);
 	}
 	
 	static char dq = '\"';
@@ -395,29 +466,98 @@ class AugmentedCandidateResult {
 	
 }
 
-enum Country {
-	
-	ENGLAND("England"), SCOTLAND("Scotland"), WALES("Wales"), NORTHERN_IRELAND("Northern Ireland");
+class Constituency {
 	
-	String m_label; 
-	Country(String label) {
-		m_label = label;
+	static Constituency asConstituency(String constituencyName, List<CandidateResult> lResults, PartyRegistry registry) {
+		Builder builder = new Builder(registry);
+		lResults.forEach(builder::add);
+		return builder.build(constituencyName);
 	}
-	
-	public String toString() {
-		return m_label;
+
+	// Builds a constituency from its candidates in one pass, as the downstream collector of a groupingBy by constituency
+	static Collector<CandidateResult, Builder, Constituency> collector(PartyRegistry registry) {
+		return Collector.of(() -> new Builder(registry), Builder::add, Builder::combine, b -> b.build(b.m_candidates.get(0).constituency()));
 	}
-}
 
-class Constituency {
-	
-	static Constituency asConstituency(String constituencyName, List<CandidateResult> lResults) {
-		return new Constituency(constituencyName, lResults);
+	// Keeps the total, the top two and the last placed candidates as they are added, rather than sorting them all. Candidates
+	// with equal votes stay in the order they were added, as with a stable sort.
+	static class Builder {
+		PartyRegistry m_registry;			// For the country of each candidate's party
+		List<CandidateResult> m_candidates = new ArrayList<>();
+		int m_totalVotes = 0;
+		CandidateResult m_first;
+		CandidateResult m_second;
+		CandidateResult m_last;
+		Country m_country;					// Null until a candidate is added, then England unless a party says otherwise
+		boolean m_countryClash = false;
+
+		Builder(PartyRegistry registry) {
+			m_registry = registry;
+		}
+
+		void add(CandidateResult cr) {
+			m_candidates.add(cr);
+			m_totalVotes += cr.m_votes;
+			place(cr);
+			if(m_last == null || cr.m_votes <= m_last.m_votes) {
+				m_last = cr;
+			}
+			assignCountry(m_registry.country(cr.m_partyIdentifier));
+		}
+
+		void place(CandidateResult cr) {
+			if(m_first == null || cr.m_votes > m_first.m_votes) {
+				m_second = m_first;
+				m_first = cr;
+			}
+			else if(m_second == null || cr.m_votes > m_second.m_votes) {
+				m_second = cr;
+			}
+		}
+
+		void assignCountry(Country c) {
+			if(c == null) {
+				if(m_country == null) {
+					m_country = Country.ENGLAND;
+				}
+			}
+			else if(m_country == null || m_country == Country.ENGLAND) {
+				// Override default value
+				m_country = c;
+			}
+			else if(m_country != c) {
+				m_countryClash = true;
+			}
+		}
+
+		// Adds in the candidates from the part of the stream after this one
+		Builder combine(Builder other) {
+			if(other.m_candidates.isEmpty()) {
+				return this;
+			}
+			m_candidates.addAll(other.m_candidates);
+			m_totalVotes += other.m_totalVotes;
+			place(other.m_first);
+			if(other.m_second != null) {
+				place(other.m_second);
+			}
+			if(m_last == null || other.m_last.m_votes <= m_last.m_votes) {
+				m_last = other.m_last;
+			}
+			assignCountry(other.m_country == Country.ENGLAND ? null : other.m_country);
+			m_countryClash |= other.m_countryClash;
+			return this;
+		}
+
+		Constituency build(String constituencyName) {
+			return new Constituency(constituencyName, this);
+		}
 	}
 	
 	String m_name;
 	Country m_country;
-	List<CandidateResult> m_results;		// Sorted by votes, highest first
+	List<CandidateResult> m_candidates;					// In the order they were read
+	volatile List<CandidateResult> m_sortedResults;	// Sorted by votes, highest first, when first needed
 	int m_totalVotes;
 	String m_winningParty;
 	String m_winningCandidate;
@@ -425,6 +565,7 @@ class Constituency {
 	int m_majority;
 	double m_winningShare;					// Proportion of votes for the winner
 	double m_losingShare;					// Proportion of votes for last place
+	CandidateResult m_lastPlace;
 
 	Country country() { return m_country; }
 	String winningParty() { return m_winningParty; }
@@ -432,66 +573,40 @@ class Constituency {
 	int majority() { return m_majority; }
 	double winningShare() { return m_winningShare; }
 	double losingShare() { return m_losingShare; }
+	int candidates() { return m_candidates.size(); }
+	CandidateResult lastPlace() { return m_lastPlace; }
+
+	// Candidates sorted by votes, highest first. Sorted on first use, as most uses of a constituency only need the figures above.
+	List<CandidateResult> results() {
+		List<CandidateResult> sorted = m_sortedResults;
+		if(sorted == null) {
+			sorted = new ArrayList<>(m_candidates);
+			sorted.sort(Comparator.comparingInt(CandidateResult::votes).reversed());
+			m_sortedResults = sorted = Collections.unmodifiableList(sorted);
+		}
+		return sorted;
+	}
 	
-	Constituency(String constituencyName, List<CandidateResult> lResults) {
+	Constituency(String constituencyName, Builder builder) {
 		m_name = constituencyName;
-		m_results = new ArrayList<>(lResults);
-		m_results.sort((x,y) -> y.m_votes - x.m_votes);
-		
-		m_totalVotes = m_results.stream().collect(Collectors.summingInt(CandidateResult::votes));
-		CandidateResult winner = m_results.get(0); 
+		m_candidates = builder.m_candidates;
+		m_totalVotes = builder.m_totalVotes;
+		CandidateResult winner = builder.m_first; 
 		m_winningParty = winner.partyIdentifier();
 		m_winningCandidate = winner.surname() + ", " + winner.firstName();
 		m_winningVotes = winner.votes();
-		m_majority = winner.votes() - ((m_results.size() > 1) ? m_results.get(1).votes() : 0);
+		m_majority = winner.votes() - ((builder.m_second != null) ? builder.m_second.votes() : 0);
 		m_winningShare = winner.votes() * 100.0 / m_totalVotes;	
-		m_losingShare = m_results.get(m_results.size()-1).votes() * 100.0 / m_totalVotes;	
-		
-		assignCountry();
-	}
-	
-	void assignCountry() {
-		m_country = null;
-		// Assign a country based on indicative know party identifiers
-		m_results.stream().map(cr -> cr.m_partyIdentifier).forEachOrdered(pi -> checkCountry(pi));
-	}
-	
-	void checkCountry(String partyIdentifier) {
-		Country c = null;
-		String pi = partyIdentifier.toLowerCase();
-		// Assume nationalist sit in all seats 
-		if(pi.equalsIgnoreCase("snp")) {
-			c = Country.SCOTLAND;
-		}
-		else if(pi.equalsIgnoreCase("plaid cymru")) {
-			c = Country.WALES;
-		}
-		else if(pi.equalsIgnoreCase("dup") || pi.equalsIgnoreCase("sdlp")  || pi.equalsIgnoreCase("uup") || pi.equalsIgnoreCase("sinn féin")) {
-			c = Country.NORTHERN_IRELAND;
-		}
-
-		if(c == null) {
-			if(m_country == null) {
-				m_country = Country.ENGLAND;
-			}
-		}
-		else if(m_country == null) {
-			m_country = c;
-		}
-		else if(m_country == Country.ENGLAND) {
-			// Override default value
-			m_country = c;
-		}
-		else if(m_country == c) {
-			// Already assigned
-		}
-		else {
+		m_lastPlace = builder.m_last;
+		m_losingShare = m_lastPlace.votes() * 100.0 / m_totalVotes;	
+		m_country = builder.m_country;
+		if(builder.m_countryClash) {
 			System.err.println("Unexpected country combination in constituency " + m_name);
-		}	
+		}
 	}
 	
 	public String toString() {
-		return m_name + " (" + m_country + ") : total votes " + m_totalVotes + ", " + m_results.size() + " candidates : won by " + m_winningParty + " (" + m_winningCandidate + ")" + 
+		return m_name + " (" + m_country + ") : total votes " + m_totalVotes + ", " + candidates() + " candidates : won by " + m_winningParty + " (" + m_winningCandidate + ")" + 
 					" : " + m_winningVotes + " votes, maj " + m_majority + ", share " + Math.round(m_winningShare) + " %"; 
 	}
 }
@@ -558,7 +673,7 @@ class PartyResult {
 		// BiConsumer interface
 		public void accept(Map<String, PartyResult> m, Constituency c) {
 			int position = 0;
-			for(CandidateResult cr : c.m_results) {
+			for(CandidateResult cr : c.results()) {
 				position++;
 				PartyResult p = m.get(cr.partyIdentifier());
 				if(p == null) {
@@ -592,6 +707,130 @@ class PartyResult {
 			return m1;
 		}
 	}
+
+	// Collector for parallel streams which share a single ConcurrentHashMap, with LongAdder counters for each party, so there are
+	// no per-thread maps to merge afterwards. The counters are turned into PartyResults once at the end.
+	static class ConcurrentResultCollector {
+
+		static class Counters {
+			LongAdder m_wins = new LongAdder();
+			LongAdder m_seconds = new LongAdder();
+			LongAdder m_thirds = new LongAdder();
+			LongAdder m_contested = new LongAdder();
+			LongAdder m_votes = new LongAdder();
+
+			void add(CandidateResult cr, int position) {
+				m_contested.increment();
+				m_votes.add(cr.m_votes);
+				if(position == 1) m_wins.increment();
+				if(position == 2) m_seconds.increment();
+				if(position == 3) m_thirds.increment();
+			}
+
+			void addAll(Counters other) {
+				m_wins.add(other.m_wins.sum());
+				m_seconds.add(other.m_seconds.sum());
+				m_thirds.add(other.m_thirds.sum());
+				m_contested.add(other.m_contested.sum());
+				m_votes.add(other.m_votes.sum());
+			}
+
+			PartyResult toPartyResult(String name) {
+				PartyResult p = new PartyResult(name);
+				p.m_wins = m_wins.intValue();
+				p.m_seconds = m_seconds.intValue();
+				p.m_thirds = m_thirds.intValue();
+				p.m_contested = m_contested.intValue();
+				p.m_votes = m_votes.intValue();
+				return p;
+			}
+		}
+
+		static Collector<Constituency, ?, Map<String, PartyResult>> getCollector() {
+			return Collector.of(
+					ConcurrentHashMap<String, Counters>::new,
+					ConcurrentResultCollector::accept,
+					ConcurrentResultCollector::combine,
+					ConcurrentResultCollector::finish,
+					Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+		}
+
+		static void accept(ConcurrentHashMap<String, Counters> m, Constituency c) {
+			int position = 0;
+			for(CandidateResult cr : c.results()) {
+				position++;
+				// Only lock for a party not seen before
+				Counters counters = m.get(cr.partyIdentifier());
+				if(counters == null) {
+					counters = m.computeIfAbsent(cr.partyIdentifier(), k -> new Counters());
+				}
+				counters.add(cr, position);
+			}
+		}
+
+		// Only used if the stream doesn't share one map between threads, e.g. an ordered stream
+		static ConcurrentHashMap<String, Counters> combine(ConcurrentHashMap<String, Counters> m1, ConcurrentHashMap<String, Counters> m2) {
+			m2.forEach((party, counters) -> m1.merge(party, counters, (c1, c2) -> { c1.addAll(c2); return c1; }));
+			return m1;
+		}
+
+		static Map<String, PartyResult> finish(ConcurrentHashMap<String, Counters> m) {
+			Map<String, PartyResult> results = new HashMap<>();
+			m.forEach((party, counters) -> results.put(party, counters.toPartyResult(party)));
+			return results;
+		}
+	}
+}
+
+// Party totals kept up to date as candidate results arrive. Each constituency's results must arrive together, as they do in the
+// results file: only the current constituency's candidates are held, and it is counted once the next constituency starts. A result
+// for a constituency which has already been counted is reported and left out, rather than counting the constituency twice.
+class StreamingPartyResults implements StreamingAggregate<CandidateResult> {
+
+	PartyRegistry m_registry;
+	Map<String, PartyResult> m_parties = new HashMap<>();
+	PartyResult.ResultCollector m_collector = new PartyResult.ResultCollector();
+	List<CandidateResult> m_current = new ArrayList<>();
+	BitSet m_counted = new BitSet();			// By constituency id
+	int m_constituencies = 0;
+	int m_outOfOrder = 0;
+
+	StreamingPartyResults(PartyRegistry registry) {
+		m_registry = registry;
+	}
+
+	public void add(CandidateResult cr) {
+		if(m_counted.get(cr.constituencyId())) {
+			m_outOfOrder++;
+			System.err.println("Result for " + cr.constituency() + " arrived after the constituency was counted, left out: " + cr);
+			return;
+		}
+		if(!m_current.isEmpty() && m_current.get(0).constituencyId() != cr.constituencyId()) {
+			addConstituency();
+		}
+		m_current.add(cr);
+	}
+
+	public void endOfInput() {
+		addConstituency();
+	}
+
+	void addConstituency() {
+		if(m_current.isEmpty()) {
+			return;
+		}
+		m_collector.accept(m_parties, Constituency.asConstituency(m_current.get(0).constituency(), m_current, m_registry));
+		m_counted.set(m_current.get(0).constituencyId());
+		m_current.clear();
+		m_constituencies++;
+	}
+
+	public void publish() {
+		System.out.println();
+		String outOfOrder = m_outOfOrder == 0 ? "" : " (" + m_outOfOrder + " results left out as out of order)";
+		System.out.println("Parties with a win after " + m_constituencies + " constituencies" + outOfOrder + ":");
+		m_parties.values().stream().filter(p -> p.m_wins > 0).sorted((x,y) -> y.m_wins - x.m_wins).forEachOrdered(System.out::println);
+	}
 }
 
 // ==========================================================
@@ -0,0 +1,116 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * League table which is kept in order as results arrive, for following a season match by match. Adding a match updates the two
+ * teams' seasons and moves just those teams within an ordered set, in O(log n), rather than regrouping all the matches and sorting
+ * the whole table again. Reading the top or bottom k positions walks the set from the relevant end, in O(k).
+ *
+ * Teams level on points, goal difference and goals scored are ordered by their head-to-head results, as in League. Those depend on
+ * which teams are level, so the set holds them by name and the ties are broken as the table is read, from a team by team tally of
+ * the head-to-head results kept up to date as matches are added. The matches themselves aren't kept, so memory stays flat however
+ * long the season runs.
+ *
+ * Not thread safe - add matches from one thread, or synchronize on the league.
+ */
+class IncrementalLeague {
+
+	// League ordering, with the team name to break complete ties so that the set holds every team
+	static Comparator<TeamSeason> s_tableOrdering = League.s_leagueOrdering.thenComparing(TeamSeason::team);
+
+	String m_name;
+	Map<Integer, TeamSeason> m_seasons;			// By team id
+	TreeSet<TeamSeason> m_table;
+	League.HeadToHeadTable m_headToHead;
+	long m_matches;
+
+	IncrementalLeague(String name) {
+		m_name = name;
+		m_seasons = new HashMap<>();
+		m_table = new TreeSet<>(s_tableOrdering);
+		m_headToHead = new League.HeadToHeadTable();
+		m_matches = 0;
+	}
+
+	void add(FootballMatch fm) {
+		addResult(fm.homeTeamId(), fm.homeTeam(), true, fm.homeScore(), fm.awayScore());
+		addResult(fm.awayTeamId(), fm.awayTeam(), false, fm.awayScore(), fm.homeScore());
+		m_headToHead.add(fm);
+		m_matches++;
+	}
+
+	// A team's season must be taken out of the set before it changes, as its position in the set depends on it
+	void addResult(int teamId, String team, boolean home, int goalsFor, int goalsAgainst) {
+		TeamSeason ts = m_seasons.get(teamId);
+		if(ts == null) {
+			ts = new TeamSeason();
+			ts.m_team = team;
+			ts.m_teamId = teamId;
+			m_seasons.put(teamId, ts);
+		}
+		else {
+			m_table.remove(ts);
+		}
+		ts.addResult(home, goalsFor, goalsAgainst);
+		m_table.add(ts);
+	}
+
+	long matches() { return m_matches; }
+	int teams() { return m_table.size(); }
+
+	// Copy of the current table as a League
+	League snapshot() {
+		List<TeamSeason> lts = new ArrayList<>(m_table.size());
+		for(TeamSeason ts : m_table) {
+			lts.add(ts.copy());
+		}
+		return new League(m_name, lts, m_headToHead);
+	}
+
+	// At least length teams from one end of the set, carrying on while teams are level with the last, so that a tie across the
+	// end of the list can be broken
+	static List<TeamSeason> fromEnd(Iterator<TeamSeason> it, int length) {
+		List<TeamSeason> l = new ArrayList<>();
+		while(it.hasNext()) {
+			TeamSeason ts = it.next();
+			if(l.size() >= length && League.s_leagueOrdering.compare(l.get(l.size() - 1), ts) != 0) {
+				break;
+			}
+			l.add(ts);
+		}
+		return l;
+	}
+
+	void printTable() {
+		printTopTable(m_table.size());
+	}
+
+	void printTopTable(int length) {
+		System.out.println(League.tableHeading());
+		List<TeamSeason> top = fromEnd(m_table.iterator(), length);
+		League.breakAllTies(top, m_headToHead);
+		for(int pos = 1; pos <= length && pos <= top.size(); pos++) {
+			System.out.println(League.tableRow(new League.TeamSeasonPosition(top.get(pos - 1), pos)));
+		}
+	}
+
+	void printBottomTable(int length) {
+		System.out.println(League.tableHeading());
+		List<TeamSeason> bottom = fromEnd(m_table.descendingIterator(), length);
+		Collections.reverse(bottom);
+		League.breakAllTies(bottom, m_headToHead);
+		int rows = Math.min(length, m_table.size());
+		int firstPos = m_table.size() - rows + 1;
+		for(int i = bottom.size() - rows; i < bottom.size(); i++) {
+			System.out.println(League.tableRow(new League.TeamSeasonPosition(bottom.get(i), firstPos++)));
+		}
+	}
+}
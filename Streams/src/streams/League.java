@@ -0,0 +1,411 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class League {
+
+	// Add league ordering comparator
+	
+	static String tableHeading() {
+		Formatter fmt = new Formatter();
+		fmt.format("%3.3s %-20.20s %6.6s %3.3s %3.3s %3.3s %10.10s %10.10s  %-5.5s", "Pos", "Team", "Played", "W", "D", "L", "Goal diff", "Points", "Form");
+		String s = fmt.toString();
+		fmt.close();
+		return s;
+	}
+	
+	static String tableRow(TeamSeasonPosition tsp) {
+		int pos = tsp.m_position;
+		TeamSeason ts = tsp.m_teamSeason;
+		Formatter fmt = new Formatter();
+		fmt.format("%3d %-20.20s %6d %3d %3d %3d %10d %10d  %-5.5s", pos, ts.team(), ts.played(), ts.won(), ts.drawn(), ts.lost(), ts.goalDifference(), ts.points(), ts.form());
+		String s = fmt.toString();
+		fmt.close();
+		return s;
+	}
+
+	static class TeamSeasonPosition implements Comparable<TeamSeasonPosition> {
+		TeamSeason m_teamSeason;
+		int m_position;
+		
+		TeamSeasonPosition(TeamSeason ts, int position) {
+			m_teamSeason = ts;
+			m_position = position;
+		}
+		
+		int position() { return m_position; }
+		TeamSeason teamSeason() { return m_teamSeason; }
+		
+		public String toString() {
+			return "Position = " + position() + " : " + m_teamSeason.toString();
+		}
+		
+		public int compareTo(TeamSeasonPosition tsp2) {
+			return this.position() - tsp2.position();
+		}
+	}
+	
+	String m_name;
+	List<TeamSeasonPosition> m_leaguePositions;
+	// Points, then goal difference, then goals scored. Teams still level are separated by head-to-head results where they are
+	// available - see breakTies.
+	static Comparator<TeamSeason> s_leagueOrdering = Comparator.comparingInt(TeamSeason::points)
+															.thenComparingInt(TeamSeason::goalDifference)
+															.thenComparingInt(TeamSeason::goalsFor)
+															.reversed();
+
+	// Layout of the packed sort key, from the least significant bits
+	static final int INDEX_BITS = 12;
+	static final int GOALS_FOR_BITS = 15;
+	static final int GOAL_DIFFERENCE_BITS = 15;
+	static final int POINTS_BITS = 63 - INDEX_BITS - GOALS_FOR_BITS - GOAL_DIFFERENCE_BITS;
+	static final int MAX_INDEX = (1 << INDEX_BITS) - 1;
+	
+	League(String name, List<TeamSeason> ts) {
+		this(name, ts, null);
+	}
+
+	// The head-to-head results, if given, are only looked at to separate teams level on points, goal difference and goals scored
+	League(String name, List<TeamSeason> ts, HeadToHeadScores headToHead) {
+		m_name = name;
+		// Sort the league, and put in order into a list
+		List<TeamSeason> lSorted = rank(ts, headToHead);
+		m_leaguePositions = IntStream.rangeClosed(1, lSorted.size()).mapToObj(pos -> new TeamSeasonPosition(lSorted.get(pos-1), pos)).collect(Collectors.toList());
+	}
+
+	// Points, goal difference and goals scored packed into a non-negative long which sorts in league order, or -1 if any of them is
+	// out of range for the packing
+	static long rankKey(TeamSeason ts) {
+		long points = ts.points();
+		long goalDifference = ts.goalDifference() + (1L << (GOAL_DIFFERENCE_BITS - 1));
+		long goalsFor = ts.goalsFor();
+		if(points < 0 || points >= 1L << POINTS_BITS || goalDifference < 0 || goalDifference >= 1L << GOAL_DIFFERENCE_BITS || 
+				goalsFor < 0 || goalsFor >= 1L << GOALS_FOR_BITS) {
+			return -1;
+		}
+		return (points << (GOAL_DIFFERENCE_BITS + GOALS_FOR_BITS)) | (goalDifference << GOALS_FOR_BITS) | goalsFor;
+	}
+
+	// Sorts the teams with one primitive long per team, holding its rank key and its index in the list, so the sort compares longs
+	// rather than calling back into a comparator. Falls back to sorting with the comparator if a team doesn't fit the packing.
+	static List<TeamSeason> rank(List<TeamSeason> lts, HeadToHeadScores headToHead) {
+		int n = lts.size();
+		List<TeamSeason> sorted = null;
+		if(n <= MAX_INDEX + 1) {
+			long[] keys = new long[n];
+			for(int i = 0; i < n && keys != null; i++) {
+				long key = rankKey(lts.get(i));
+				// Earlier teams get the higher index bits, so that the descending order keeps them first among equals
+				keys[i] = key < 0 ? 0 : (key << INDEX_BITS) | (MAX_INDEX - i);
+				if(key < 0) {
+					keys = null;
+				}
+			}
+			if(keys != null) {
+				Arrays.sort(keys);
+				sorted = new ArrayList<>(n);
+				for(int i = n - 1; i >= 0; i--) {
+					sorted.add(lts.get(MAX_INDEX - (int)(keys[i] & MAX_INDEX)));
+				}
+			}
+		}
+		if(sorted == null) {
+			sorted = new ArrayList<>(lts);
+			sorted.sort(s_leagueOrdering);
+		}
+
+		// Ties are rare, so look for them afterwards rather than making every comparison in the sort more expensive
+		breakAllTies(sorted, headToHead);
+		return sorted;
+	}
+
+	// Breaks the ties in each run of level teams in a list in league order
+	static void breakAllTies(List<TeamSeason> sorted, HeadToHeadScores headToHead) {
+		int n = sorted.size();
+		int start = 0;
+		for(int i = 1; i <= n; i++) {
+			if(i == n || s_leagueOrdering.compare(sorted.get(start), sorted.get(i)) != 0) {
+				if(i - start > 1) {
+					breakTies(sorted.subList(start, i), headToHead);
+				}
+				start = i;
+			}
+		}
+	}
+
+	// Orders teams level on points, goal difference and goals scored by the points, then goal difference, from the matches between
+	// them, and finally by name. Without the head-to-head results, or team ids to look them up by, just by name.
+	static void breakTies(List<TeamSeason> tied, HeadToHeadScores headToHead) {
+		int n = tied.size();
+		int[] points = new int[n];
+		int[] goalDifference = new int[n];
+		if(headToHead != null) {
+			headToHead.score(tied, points, goalDifference);
+		}
+		List<Integer> order = IntStream.range(0, n).boxed().collect(Collectors.toList());
+		order.sort(Comparator.comparingInt((Integer i) -> points[i])
+								.thenComparingInt(i -> goalDifference[i])
+								.reversed()
+								.thenComparing(i -> tied.get(i).team()));
+		List<TeamSeason> ordered = new ArrayList<>(n);
+		order.forEach(i -> ordered.add(tied.get(i)));
+		for(int i = 0; i < n; i++) {
+			tied.set(i, ordered.get(i));
+		}
+	}
+
+	// Head-to-head points and goal difference for breaking ties
+	interface HeadToHeadScores {
+		// Adds each tied team's points and goal difference from the matches between the tied teams. Teams without an id are left at 0.
+		void score(List<TeamSeason> tied, int[] points, int[] goalDifference);
+	}
+
+	/**
+	 * The results of a league's matches for breaking ties, one packed long per match holding the two team ids and the score, so
+	 * gathering them allocates nothing per match. The first time ties are scored, each team's matches are indexed by team id, so
+	 * scoring a group of tied teams only looks at those teams' own matches rather than every match in the season.
+	 *
+	 * Not thread safe - gather the results from one thread, or into separate instances which are then combined.
+	 */
+	static class HeadToHead implements HeadToHeadScores {
+
+		static final int TEAM_BITS = 21;
+		static final int SCORE_BITS = 11;
+		static final int TEAM_MASK = (1 << TEAM_BITS) - 1;
+		static final int SCORE_MASK = (1 << SCORE_BITS) - 1;
+
+		long[] m_results = new long[64];
+		int m_size = 0;
+		int[] m_teamIds;				// The distinct team ids in the results, sorted, so team t is the one with id m_teamIds[t]
+		int[] m_start;					// Team t's matches are m_byTeam[m_start[t]] to m_byTeam[m_start[t+1]-1]
+		int[] m_byTeam;
+		int[] m_groupPosition;			// By team, position in the group being scored, or -1
+
+		void add(int homeTeamId, int awayTeamId, int homeScore, int awayScore) {
+			if(homeTeamId < 0 || homeTeamId > TEAM_MASK || awayTeamId < 0 || awayTeamId > TEAM_MASK || 
+					homeScore < 0 || homeScore > SCORE_MASK || awayScore < 0 || awayScore > SCORE_MASK) {
+				throw new IllegalArgumentException("Team id or score out of range for head-to-head results: " + 
+								homeTeamId + " " + homeScore + "-" + awayScore + " " + awayTeamId);
+			}
+			if(m_size == m_results.length) {
+				m_results = Arrays.copyOf(m_results, m_size * 2);
+			}
+			m_results[m_size++] = ((long)homeTeamId << (TEAM_BITS + 2 * SCORE_BITS)) | ((long)awayTeamId << (2 * SCORE_BITS)) | 
+										(homeScore << SCORE_BITS) | awayScore;
+			m_start = null;
+		}
+
+		void add(FootballMatch fm) {
+			add(fm.homeTeamId(), fm.awayTeamId(), fm.homeScore(), fm.awayScore());
+		}
+
+		// Adds in the results from the part of the stream after this one
+		HeadToHead combine(HeadToHead later) {
+			if(m_size + later.m_size > m_results.length) {
+				m_results = Arrays.copyOf(m_results, Math.max(m_size + later.m_size, m_results.length * 2));
+			}
+			System.arraycopy(later.m_results, 0, m_results, m_size, later.m_size);
+			m_size += later.m_size;
+			m_start = null;
+			return this;
+		}
+
+		HeadToHead copy() {
+			return new HeadToHead().combine(this);
+		}
+
+		int size() { return m_size; }
+
+		static int homeTeamId(long result) { return (int)(result >>> (TEAM_BITS + 2 * SCORE_BITS)) & TEAM_MASK; }
+		static int awayTeamId(long result) { return (int)(result >>> (2 * SCORE_BITS)) & TEAM_MASK; }
+		static int homeScore(long result) { return (int)(result >>> SCORE_BITS) & SCORE_MASK; }
+		static int awayScore(long result) { return (int)result & SCORE_MASK; }
+
+		// Counting sort of the results by team, each result appearing under both of its teams. The teams are numbered densely from
+		// the ids in these results, so the index is sized by this league's teams rather than by every team the ids were given to.
+		void index() {
+			int[] ids = new int[2 * m_size];
+			for(int i = 0; i < m_size; i++) {
+				ids[2 * i] = homeTeamId(m_results[i]);
+				ids[2 * i + 1] = awayTeamId(m_results[i]);
+			}
+			Arrays.sort(ids);
+			int teams = 0;
+			for(int i = 0; i < ids.length; i++) {
+				if(teams == 0 || ids[i] != ids[teams - 1]) {
+					ids[teams++] = ids[i];
+				}
+			}
+			m_teamIds = Arrays.copyOf(ids, teams);
+			int[] start = new int[teams + 1];
+			for(int i = 0; i < m_size; i++) {
+				start[team(homeTeamId(m_results[i])) + 1]++;
+				start[team(awayTeamId(m_results[i])) + 1]++;
+			}
+			for(int t = 0; t < teams; t++) {
+				start[t + 1] += start[t];
+			}
+			int[] next = Arrays.copyOf(start, teams);
+			m_byTeam = new int[2 * m_size];
+			for(int i = 0; i < m_size; i++) {
+				m_byTeam[next[team(homeTeamId(m_results[i]))]++] = i;
+				m_byTeam[next[team(awayTeamId(m_results[i]))]++] = i;
+			}
+			m_groupPosition = new int[teams];
+			Arrays.fill(m_groupPosition, -1);
+			m_start = start;
+		}
+
+		// The team numbered from the id in the index, or -1 if it has no results
+		int team(int teamId) {
+			int t = Arrays.binarySearch(m_teamIds, teamId);
+			return t < 0 ? -1 : t;
+		}
+
+		public void score(List<TeamSeason> tied, int[] points, int[] goalDifference) {
+			if(m_start == null) {
+				index();
+			}
+			int[] teams = new int[tied.size()];
+			for(int p = 0; p < tied.size(); p++) {
+				teams[p] = team(tied.get(p).teamId());
+				if(teams[p] >= 0) {
+					m_groupPosition[teams[p]] = p;
+				}
+			}
+			for(int p = 0; p < tied.size(); p++) {
+				int id = tied.get(p).teamId();
+				int t = teams[p];
+				if(t < 0) {
+					continue;
+				}
+				for(int i = m_start[t]; i < m_start[t + 1]; i++) {
+					long result = m_results[m_byTeam[i]];
+					boolean home = homeTeamId(result) == id;
+					int opponent = team(home ? awayTeamId(result) : homeTeamId(result));
+					if(opponent == t || m_groupPosition[opponent] < 0) {
+						continue;
+					}
+					int goalsFor = home ? homeScore(result) : awayScore(result);
+					int goalsAgainst = home ? awayScore(result) : homeScore(result);
+					points[p] += goalsFor > goalsAgainst ? 3 : goalsFor == goalsAgainst ? 1 : 0;
+					goalDifference[p] += goalsFor - goalsAgainst;
+				}
+			}
+			for(int t : teams) {
+				if(t >= 0) {
+					m_groupPosition[t] = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Running head-to-head points and goal difference between each pair of teams, updated as each match is added, for breaking ties
+	 * in a table which is read while results are still arriving. Memory grows with the square of the number of teams rather than with
+	 * the number of matches, and scoring a group of tied teams only reads the pairs within the group.
+	 *
+	 * Not thread safe.
+	 */
+	static class HeadToHeadTable implements HeadToHeadScores {
+
+		int[] m_index = new int[0];				// By team id, the team's row and column in the tables, or -1
+		int m_teams = 0;
+		int m_capacity = 0;
+		int[] m_points = new int[0];				// [row * m_capacity + column], points the row team has taken from the column team
+		int[] m_goalDifference = new int[0];
+
+		void add(int homeTeamId, int awayTeamId, int homeScore, int awayScore) {
+			int home = index(homeTeamId);
+			int away = index(awayTeamId);
+			m_points[home * m_capacity + away] += homeScore > awayScore ? 3 : homeScore == awayScore ? 1 : 0;
+			m_points[away * m_capacity + home] += awayScore > homeScore ? 3 : homeScore == awayScore ? 1 : 0;
+			m_goalDifference[home * m_capacity + away] += homeScore - awayScore;
+			m_goalDifference[away * m_capacity + home] += awayScore - homeScore;
+		}
+
+		void add(FootballMatch fm) {
+			add(fm.homeTeamId(), fm.awayTeamId(), fm.homeScore(), fm.awayScore());
+		}
+
+		int teams() { return m_teams; }
+
+		// The team's row and column, adding it if it's new
+		int index(int teamId) {
+			if(teamId < 0) {
+				throw new IllegalArgumentException("Team id out of range for head-to-head results: " + teamId);
+			}
+			if(teamId >= m_index.length) {
+				int length = m_index.length;
+				m_index = Arrays.copyOf(m_index, Math.max(teamId + 1, length * 2));
+				Arrays.fill(m_index, length, m_index.length, -1);
+			}
+			int index = m_index[teamId];
+			if(index < 0) {
+				if(m_teams == m_capacity) {
+					grow(Math.max(8, m_capacity * 2));
+				}
+				index = m_teams++;
+				m_index[teamId] = index;
+			}
+			return index;
+		}
+
+		void grow(int capacity) {
+			int[] points = new int[capacity * capacity];
+			int[] goalDifference = new int[capacity * capacity];
+			for(int row = 0; row < m_teams; row++) {
+				System.arraycopy(m_points, row * m_capacity, points, row * capacity, m_teams);
+				System.arraycopy(m_goalDifference, row * m_capacity, goalDifference, row * capacity, m_teams);
+			}
+			m_points = points;
+			m_goalDifference = goalDifference;
+			m_capacity = capacity;
+		}
+
+		// The team's row and column, or -1 if it has no results
+		int find(int teamId) {
+			return teamId >= 0 && teamId < m_index.length ? m_index[teamId] : -1;
+		}
+
+		public void score(List<TeamSeason> tied, int[] points, int[] goalDifference) {
+			int n = tied.size();
+			int[] rows = new int[n];
+			for(int p = 0; p < n; p++) {
+				rows[p] = find(tied.get(p).teamId());
+			}
+			for(int p = 0; p < n; p++) {
+				if(rows[p] < 0) {
+					continue;
+				}
+				for(int q = 0; q < n; q++) {
+					if(q != p && rows[q] >= 0 && rows[q] != rows[p]) {
+						points[p] += m_points[rows[p] * m_capacity + rows[q]];
+						goalDifference[p] += m_goalDifference[rows[p] * m_capacity + rows[q]];
+					}
+				}
+			}
+		}
+	}
+
+	void printTable() {
+		System.out.println(League.tableHeading());
+		m_leaguePositions.stream().forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	}
+
+	void printTopTable(int length) {
+		System.out.println(League.tableHeading());
+		m_leaguePositions.stream().limit(length).forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	}
+
+	void printBottomTable(int length) {
+		System.out.println(League.tableHeading());
+		m_leaguePositions.stream().skip(m_leaguePositions.size() - length).forEachOrdered(lp -> System.out.println(League.tableRow(lp)));		
+	}
+}
@@ -0,0 +1,58 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of loading a file of records: the records in file order, the lines which were rejected with their line numbers and
+ * reasons, and counts of the lines read and skipped. Gathered in the same pass as the parsing, one per chunk, and appended in order.
+ */
+class LoadResult<T> {
+
+	static class Reject {
+		long m_lineNumber;
+		String m_line;
+		String m_reason;
+
+		Reject(long lineNumber, String line, String reason) {
+			m_lineNumber = lineNumber;
+			m_line = line;
+			m_reason = reason;
+		}
+
+		long lineNumber() { return m_lineNumber; }
+		String line() { return m_line; }
+		String reason() { return m_reason; }
+
+		public String toString() {
+			return "Line " + m_lineNumber + ": " + m_reason + ": " + m_line;
+		}
+	}
+
+	List<T> m_records = new ArrayList<>();
+	List<Reject> m_rejects = new ArrayList<>();
+	long m_lines;				// Lines read, including skipped and rejected lines
+	long m_skipped;				// Headings and blank lines
+
+	List<T> records() { return m_records; }
+	List<Reject> rejects() { return m_rejects; }
+	long lines() { return m_lines; }
+	long skipped() { return m_skipped; }
+	long accepted() { return m_records.size(); }
+	long rejected() { return m_rejects.size(); }
+
+	// Appends the result for the part of the file following this one, renumbering its rejected lines to follow on from this part's lines
+	LoadResult<T> append(LoadResult<T> next) {
+		m_records.addAll(next.m_records);
+		for(Reject r : next.m_rejects) {
+			m_rejects.add(new Reject(m_lines + r.m_lineNumber, r.m_line, r.m_reason));
+		}
+		m_lines += next.m_lines;
+		m_skipped += next.m_skipped;
+		return this;
+	}
+
+	public String toString() {
+		return m_lines + " lines: " + accepted() + " accepted, " + rejected() + " rejected, " + m_skipped + " skipped";
+	}
+}
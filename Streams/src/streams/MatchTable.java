@@ -0,0 +1,150 @@
+package streams;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Match results held column by column rather than as a FootballMatch object per match. Team, league and date names are
+ * dictionary-encoded once, in symbol tables belonging to the table, so each row is a pair of short team ids, byte scores and a byte
+ * result, plus small ids for the league and date - around a dozen bytes per match instead of several objects.
+ *
+ * Scans run over row indexes as IntStreams, reading the columns directly. view(row) gives a FootballMatch for code which wants one,
+ * sharing the symbol tables' Strings rather than copying them.
+ */
+class MatchTable {
+
+	static final FootballMatch.HorAResultType[] s_results = FootballMatch.HorAResultType.values();
+
+	FootballMatch.Names m_names = new FootballMatch.Names();
+
+	short[] m_homeTeam;
+	short[] m_awayTeam;
+	byte[] m_homeScore;
+	byte[] m_awayScore;
+	byte[] m_result;			// HorAResultType ordinal
+	short[] m_league;
+	int[] m_date;
+	int m_size;
+
+	MatchTable() {
+		this(64);
+	}
+
+	MatchTable(int initialCapacity) {
+		int capacity = Math.max(initialCapacity, 1);
+		m_homeTeam = new short[capacity];
+		m_awayTeam = new short[capacity];
+		m_homeScore = new byte[capacity];
+		m_awayScore = new byte[capacity];
+		m_result = new byte[capacity];
+		m_league = new short[capacity];
+		m_date = new int[capacity];
+		m_size = 0;
+	}
+
+	static MatchTable of(Collection<FootballMatch> matches) {
+		MatchTable table = new MatchTable(matches.size());
+		matches.forEach(table::add);
+		return table;
+	}
+
+	void add(FootballMatch fm) {
+		if(fm.homeScore() < 0 || fm.homeScore() > Byte.MAX_VALUE || fm.awayScore() < 0 || fm.awayScore() > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Score out of range for match table: " + fm);
+		}
+		if(m_size == m_homeTeam.length) {
+			grow();
+		}
+		m_homeTeam[m_size] = shortId(m_names.m_teams, fm.homeTeam());
+		m_awayTeam[m_size] = shortId(m_names.m_teams, fm.awayTeam());
+		m_homeScore[m_size] = (byte)fm.homeScore();
+		m_awayScore[m_size] = (byte)fm.awayScore();
+		m_result[m_size] = (byte)fm.result().ordinal();
+		m_league[m_size] = shortId(m_names.m_leagues, fm.m_league);
+		m_date[m_size] = m_names.m_dates.id(fm.m_date);
+		m_size++;
+	}
+
+	static short shortId(SymbolTable symbols, String name) {
+		int id = symbols.id(name);
+		if(id > Short.MAX_VALUE) {
+			throw new IllegalStateException("Too many distinct names for match table: " + symbols.size());
+		}
+		return (short)id;
+	}
+
+	void grow() {
+		int capacity = m_size + (m_size >> 1) + 1;
+		m_homeTeam = Arrays.copyOf(m_homeTeam, capacity);
+		m_awayTeam = Arrays.copyOf(m_awayTeam, capacity);
+		m_homeScore = Arrays.copyOf(m_homeScore, capacity);
+		m_awayScore = Arrays.copyOf(m_awayScore, capacity);
+		m_result = Arrays.copyOf(m_result, capacity);
+		m_league = Arrays.copyOf(m_league, capacity);
+		m_date = Arrays.copyOf(m_date, capacity);
+	}
+
+	int size() { return m_size; }
+	int teamCount() { return m_names.m_teams.size(); }
+	String team(int teamId) { return m_names.m_teams.name(teamId); }
+	int teamId(String team) { return m_names.teamId(team); }
+
+	int homeTeamId(int row) { return m_homeTeam[row]; }
+	int awayTeamId(int row) { return m_awayTeam[row]; }
+	int homeScore(int row) { return m_homeScore[row]; }
+	int awayScore(int row) { return m_awayScore[row]; }
+	FootballMatch.HorAResultType result(int row) { return s_results[m_result[row]]; }
+
+	IntStream rows() {
+		return IntStream.range(0, m_size);
+	}
+
+	// Rows for matches the team played in, home or away
+	IntStream rowsForTeam(int teamId) {
+		return rows().filter(row -> m_homeTeam[row] == teamId || m_awayTeam[row] == teamId);
+	}
+
+	IntStream homeScores() {
+		return rows().map(row -> m_homeScore[row]);
+	}
+
+	IntStream awayScores() {
+		return rows().map(row -> m_awayScore[row]);
+	}
+
+	FootballMatch view(int row) {
+		FootballMatch fm = new FootballMatch();
+		fm.setIds(m_names, m_league[row], m_date[row], m_homeTeam[row], m_awayTeam[row]);
+		fm.m_fullTimeHomeScore = m_homeScore[row];
+		fm.m_fullTimeAwayScore = m_awayScore[row];
+		fm.m_fullTimeResult = result(row);
+		return fm;
+	}
+
+	Stream<FootballMatch> matches() {
+		return rows().mapToObj(this::view);
+	}
+
+	// Accumulates each team's season, held in an array indexed by team id, in one pass over the score columns, so there is no
+	// per-match allocation. The head-to-head results for breaking ties are gathered in the same pass.
+	League league(String name) {
+		int teams = m_names.m_teams.size();
+		TeamSeason[] seasons = new TeamSeason[teams];
+		for(int id = 0; id < teams; id++) {
+			seasons[id] = new TeamSeason();
+			seasons[id].m_team = m_names.m_teams.name(id);
+			seasons[id].m_teamId = id;
+		}
+		League.HeadToHead headToHead = new League.HeadToHead();
+		for(int row = 0; row < m_size; row++) {
+			seasons[m_homeTeam[row]].addResult(true, m_homeScore[row], m_awayScore[row]);
+			seasons[m_awayTeam[row]].addResult(false, m_awayScore[row], m_homeScore[row]);
+			headToHead.add(m_homeTeam[row], m_awayTeam[row], m_homeScore[row], m_awayScore[row]);
+		}
+		List<TeamSeason> lts = Arrays.asList(seasons);
+		return new League(name, lts, headToHead);
+	}
+}
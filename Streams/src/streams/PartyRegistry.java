@@ -0,0 +1,143 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The main parties at an election, looked up by party identifier ignoring case, giving the simplified name to report a party under
+ * and the country it stands in, if it only stands in one. Parties not in the registry are reported as 'Other', except for winners.
+ *
+ * Each spelling of an identifier is resolved once and remembered, so later lookups are a single hash lookup with no case folding.
+ * Safe to share between threads once loaded.
+ *
+ * The registry can be loaded from a CSV file, one party per line, so a new election doesn't need code changes:
+ *
+ *   # Party identifier,Simplified name,Country
+ *   Green Party,Green,
+ *   SNP,SNP,Scotland
+ *
+ * The simplified name defaults to the identifier without a trailing 'Party', and the country is left blank for parties which stand
+ * in more than one country.
+ */
+class PartyRegistry {
+
+	static class Party {
+		String m_identifier;
+		String m_simplifiedName;
+		Country m_country;				// Null if the party stands in more than one country
+		boolean m_registered;
+
+		Party(String identifier, String simplifiedName, Country country, boolean registered) {
+			m_identifier = identifier;
+			m_simplifiedName = simplifiedName;
+			m_country = country;
+			m_registered = registered;
+		}
+
+		public String toString() {
+			return m_identifier + " (" + m_simplifiedName + (m_country == null ? "" : ", " + m_country) + ")";
+		}
+	}
+
+	Map<String, Party> m_parties = new HashMap<>();						// By folded identifier
+	ConcurrentHashMap<String, Party> m_spellings = new ConcurrentHashMap<>();	// By identifier as spelt, including unregistered ones
+
+	// The parties the 2017 results were originally reported with
+	static PartyRegistry defaults() {
+		PartyRegistry registry = new PartyRegistry();
+		registry.add("Conservative", null, null);
+		registry.add("Labour", null, null);
+		registry.add("Liberal Democrats", null, null);
+		registry.add("SNP", null, Country.SCOTLAND);
+		registry.add("UKIP", null, null);
+		registry.add("Green Party", null, null);
+		registry.add("DUP", null, Country.NORTHERN_IRELAND);
+		registry.add("Sinn Féin", null, Country.NORTHERN_IRELAND);
+		registry.add("Plaid Cymru", null, Country.WALES);
+		registry.add("SDLP", null, Country.NORTHERN_IRELAND);
+		registry.add("UUP", null, Country.NORTHERN_IRELAND);
+		registry.add("Alliance", null, null);
+		registry.add("Independent", null, null);
+		return registry;
+	}
+
+	static PartyRegistry load(Path path, Charset charset) throws IOException {
+		PartyRegistry registry = new PartyRegistry();
+		CsvTokenizer csv = new CsvTokenizer();
+		List<String> lines = Files.readAllLines(path, charset);
+		for(int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if(!csv.tokenize(line) || csv.trimmedField(0).isEmpty()) {
+				throw new IOException("Invalid party on line " + (i+1) + " of " + path + ": " + line);
+			}
+			String simplifiedName = csv.fieldCount() > 1 ? csv.trimmedField(1) : "";
+			String countryLabel = csv.fieldCount() > 2 ? csv.trimmedField(2) : "";
+			Country country = null;
+			if(!countryLabel.isEmpty()) {
+				country = Country.fromLabel(countryLabel);
+				if(country == null) {
+					throw new IOException("Unknown country on line " + (i+1) + " of " + path + ": " + countryLabel);
+				}
+			}
+			registry.add(csv.trimmedField(0), simplifiedName.isEmpty() ? null : simplifiedName, country);
+		}
+		return registry;
+	}
+
+	void add(String identifier, String simplifiedName, Country country) {
+		String name = simplifiedName != null ? simplifiedName : withoutParty(identifier);
+		m_parties.put(fold(identifier), new Party(identifier, name, country, true));
+	}
+
+	// The registered party, or an unregistered one simplified from the identifier
+	Party party(String identifier) {
+		Party p = m_spellings.get(identifier);
+		if(p == null) {
+			p = m_parties.get(fold(identifier));
+			if(p == null) {
+				p = new Party(identifier, withoutParty(identifier), null, false);
+			}
+			m_spellings.put(identifier, p);
+		}
+		return p;
+	}
+
+	boolean isRegistered(String identifier) {
+		return party(identifier).m_registered;
+	}
+
+	// Registered parties are reported under their simplified name. Other parties are reported as 'Other', unless the candidate won.
+	String simplifiedName(String identifier, boolean winner) {
+		Party p = party(identifier);
+		return p.m_registered || winner ? p.m_simplifiedName : "Other";
+	}
+
+	Country country(String identifier) {
+		return party(identifier).m_country;
+	}
+
+	int size() { return m_parties.size(); }
+
+	static String fold(String identifier) {
+		return identifier.trim().toLowerCase(Locale.ROOT);
+	}
+
+	// Removes the word 'Party' from a name ending with it, e.g. Green Party becomes Green
+	static String withoutParty(String identifier) {
+		String name = identifier.trim();
+		if(name.endsWith("Party")) {
+			name = name.replace("Party", "").trim();
+		}
+		return name;
+	}
+}
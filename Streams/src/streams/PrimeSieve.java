@@ -0,0 +1,208 @@
+package streams;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Segmented Sieve of Eratosthenes producing the primes in the range [from, to) in ascending order.
+ *
+ * Only odd numbers are held in the segment, one bit each, and the segment is sized to sit in the CPU cache. Memory use is therefore
+ * bounded by the segment size plus the base primes up to sqrt(to), no matter how many primes are produced. Segments are sieved
+ * lazily, as next() runs off the end of the previous one.
+ */
+class PrimeSieve {
+
+	static final int SEGMENT_BYTES = 32 * 1024;
+	static final int SEGMENT_ODDS = SEGMENT_BYTES * 8;		// Odd numbers covered by one segment
+
+	int m_to;					// Exclusive upper bound
+	int[] m_basePrimes;			// Odd primes up to sqrt(to) - 2 is handled separately as only odd numbers are sieved
+	long[] m_composite;			// Bit i set => m_segmentStart + 2i is composite
+	long m_segmentStart;		// First (odd) number in the current segment. A long, as segments can run past Integer.MAX_VALUE
+	int m_segmentOdds;			// Number of odd numbers covered by the current segment
+	int m_nextBit;				// Next bit to examine in the current segment
+	boolean m_twoPending;
+
+	// Spliterator over the primes in [lo, hi), which splits into independently sieved sub-ranges for parallel streams
+	static Spliterator.OfInt primeRange(int lo, int hi) {
+		return new PrimeRangeSpliterator(lo, hi, basePrimes(hi));
+	}
+
+	static IntStream primes(int lo, int hi, boolean parallel) {
+		return StreamSupport.intStream(primeRange(lo, hi), parallel);
+	}
+
+	PrimeSieve(int from, int to) {
+		this(from, to, basePrimes(to));
+	}
+
+	PrimeSieve(int from, int to, int[] basePrimes) {
+		from = Math.max(from, 2);
+		m_to = to;
+		m_basePrimes = basePrimes;
+		m_composite = new long[SEGMENT_ODDS / 64];
+		m_twoPending = (from <= 2 && to > 2);
+		m_segmentStart = from | 1;		// First odd number >= from
+		m_segmentOdds = 0;
+		m_nextBit = 0;
+	}
+
+	// Odd primes up to sqrt(to-1), found with a plain sieve - at most a few thousand of them for any int range
+	static int[] basePrimes(int to) {
+		int limit = (int)Math.sqrt(Math.max(to - 1, 0));
+		boolean composite[] = new boolean[limit + 1];
+		int primes[] = new int[limit / 2 + 1];
+		int count = 0;
+		for(int i = 3; i <= limit; i += 2) {
+			if(!composite[i]) {
+				primes[count++] = i;
+				for(int j = i * i; j <= limit; j += 2 * i) {
+					composite[j] = true;
+				}
+			}
+		}
+		int result[] = new int[count];
+		System.arraycopy(primes, 0, result, 0, count);
+		return result;
+	}
+
+	// Returns the next prime in the range, or -1 once the range is exhausted
+	int next() {
+		if(m_twoPending) {
+			m_twoPending = false;
+			return 2;
+		}
+
+		while(true) {
+			if(m_nextBit < m_segmentOdds) {
+				int words = (m_segmentOdds + 63) >>> 6;
+				int w = m_nextBit >>> 6;
+				long word = ~m_composite[w] & (-1L << m_nextBit);		// Shift distance only uses the low 6 bits
+				while(word == 0 && ++w < words) {
+					word = ~m_composite[w];
+				}
+				if(word != 0) {
+					int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+					if(bit < m_segmentOdds) {
+						m_nextBit = bit + 1;
+						return (int)(m_segmentStart + 2L * bit);
+					}
+				}
+				m_nextBit = m_segmentOdds;
+			}
+			if(!nextSegment()) {
+				return -1;
+			}
+		}
+	}
+
+	boolean nextSegment() {
+		long start = m_segmentStart + 2L * m_segmentOdds;
+		if(start >= m_to) {
+			return false;
+		}
+		int odds = (int)Math.min(SEGMENT_ODDS, (m_to - start + 1) / 2);
+		long end = start + 2L * odds;
+
+		int words = (odds + 63) >>> 6;
+		for(int i = 0; i < words; i++) {
+			m_composite[i] = 0;
+		}
+
+		for(int p : m_basePrimes) {
+			long square = (long)p * p;
+			if(square >= end) {
+				break;
+			}
+			// First odd multiple of p in the segment, but not below p*p as smaller multiples have a smaller factor
+			long first = Math.max(square, (start + p - 1) / p * p);
+			if((first & 1) == 0) {
+				first += p;
+			}
+			for(int bit = (int)((first - start) >>> 1); bit < odds; bit += p) {
+				m_composite[bit >>> 6] |= 1L << bit;
+			}
+		}
+
+		m_segmentStart = start;
+		m_segmentOdds = odds;
+		m_nextBit = 0;
+		return true;
+	}
+}
+
+/**
+ * Spliterator over the primes in [lo, hi). trySplit() hands off the lower part of the range, cut on a sieve segment boundary, so each
+ * part is sieved independently of the others. The base primes are shared, as they are only ever read.
+ */
+class PrimeRangeSpliterator implements Spliterator.OfInt {
+
+	static final int SEGMENT_NUMBERS = 2 * PrimeSieve.SEGMENT_ODDS;
+	static final int MIN_SPLIT_NUMBERS = 4 * SEGMENT_NUMBERS;		// Don't split into parts smaller than a couple of segments
+
+	int m_lo;
+	int m_hi;
+	int[] m_basePrimes;
+	PrimeSieve m_sieve;			// Created on the first advance, after which the spliterator no longer splits
+
+	PrimeRangeSpliterator(int lo, int hi, int[] basePrimes) {
+		m_lo = Math.max(lo, 2);
+		m_hi = Math.max(hi, m_lo);
+		m_basePrimes = basePrimes;
+		m_sieve = null;
+	}
+
+	public OfInt trySplit() {
+		long span = (long)m_hi - m_lo;
+		if(m_sieve != null || span < MIN_SPLIT_NUMBERS) {
+			return null;
+		}
+		int mid = (int)(m_lo + (span / 2) / SEGMENT_NUMBERS * SEGMENT_NUMBERS);
+		PrimeRangeSpliterator prefix = new PrimeRangeSpliterator(m_lo, mid, m_basePrimes);
+		m_lo = mid;
+		return prefix;
+	}
+
+	public boolean tryAdvance(IntConsumer action) {
+		if(m_sieve == null) {
+			m_sieve = new PrimeSieve(m_lo, m_hi, m_basePrimes);
+		}
+		int p = m_sieve.next();
+		if(p == -1) {
+			return false;
+		}
+		action.accept(p);
+		return true;
+	}
+
+	public void forEachRemaining(IntConsumer action) {
+		if(m_sieve == null) {
+			m_sieve = new PrimeSieve(m_lo, m_hi, m_basePrimes);
+		}
+		int p;
+		while((p = m_sieve.next()) != -1) {
+			action.accept(p);
+		}
+	}
+
+	// Estimate from the prime number theorem, pi(x) ~ x / ln x. Not exact, so the spliterator isn't SIZED.
+	public long estimateSize() {
+		return Math.max(0, (long)(primesBelow(m_hi) - primesBelow(m_lo)));
+	}
+
+	static double primesBelow(int x) {
+		return x < 3 ? 0 : x / Math.log(x);
+	}
+
+	public int characteristics() {
+		return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+	}
+
+	// Primes come out in their natural order
+	public Comparator<? super Integer> getComparator() {
+		return null;
+	}
+}
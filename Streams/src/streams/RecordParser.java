@@ -0,0 +1,10 @@
+package streams;
+
+import java.util.function.Consumer;
+
+// Parses a line of a file into a record, returning null for lines to skip, such as headings and blank lines. Lines which can't be
+// parsed are passed to reject with the reason, and also return null.
+@FunctionalInterface
+interface RecordParser<T> {
+	T parse(String line, Consumer<String> reject);
+}
@@ -3,15 +3,30 @@ package streams;
 import java.util.function.UnaryOperator;
 import java.util.function.Supplier;
 import java.util.function.IntSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+import java.util.stream.Collectors;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.LinkedHashMap;
 import java.util.Date;
 import java.math.BigDecimal;
 import java.math.BigInteger;		// https://docs.oracle.com/javase/8/docs/api/java/math/BigInteger.html
 import java.math.RoundingMode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class Series {
 
@@ -30,6 +45,13 @@ public class Series {
 		Stream<FibonacciSeries2.FibonacciNumber> s2 = Stream.iterate(seed2, new FibonacciSeries2()); 		
 		s2.limit(howMany).forEachOrdered(System.out::println);
 
+		// Random access to Fibonacci numbers, without iterating from the seed
+		System.out.println();
+		System.out.println("Fibonacci numbers by fast doubling:");
+		System.out.println("- F(" + FastFibonacci.MAX_LONG_INDEX + ") = " + FastFibonacci.fibonacci(FastFibonacci.MAX_LONG_INDEX));
+		System.out.println("- F(1000) = " + FastFibonacci.bigFibonacci(1000));
+		FastFibonacci.fibonacci(1000000, 1000003).forEachOrdered(f -> System.out.println("- " + f.bitLength() + " bits"));
+
 		System.out.println();
 		System.out.println("Approximation to e:");
 		howMany = 20;
@@ -44,6 +66,15 @@ public class Series {
 		Stream<BigDecimal> s4 = Stream.iterate(seed4, new BDApproxE());			// seed value is applied to stream as first item, before apply has ever been called. 		
 		s4.limit(howMany).forEachOrdered(System.out::println);
 
+		// e to many more digits by binary splitting, on the common fork/join pool
+		System.out.println();
+		System.out.println("e by binary splitting:");
+		System.out.println(new BinarySplittingE().evaluate(50));
+		int eDigits = 100000;
+		long eStartedAt = System.currentTimeMillis();
+		String e = new BinarySplittingE().evaluate(eDigits, ForkJoinPool.commonPool()).toPlainString();
+		System.out.println(eDigits + " digits took " + (System.currentTimeMillis() - eStartedAt) + " ms, ending ..." + e.substring(e.length() - 20));
+
 		// Stream consisting of powers of two using the iterate method
 		System.out.println();
 		System.out.println("Powers of 2:");
@@ -51,6 +82,20 @@ public class Series {
 		IntStream is = IntStream.iterate(1, n -> (n*2)); 		
 		is.limit(howMany).forEachOrdered(System.out::println);
 		
+		// The same without silently overflowing, using an explicit overflow policy
+		System.out.println();
+		System.out.println("Powers of 2 as ints, stopping before overflow:");
+		System.out.println(new ExactPowers(2).ints(OverflowPolicy.STOP).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+		System.out.println("Factorials as longs, saturating:");
+		System.out.println(new ExactFactorials().longs(OverflowPolicy.SATURATE).limit(22).mapToObj(Long::toString).collect(Collectors.joining(" ")));
+		System.out.println("Fibonacci numbers, promoted to BigInteger after F(92):");
+		new ExactFibonacci().numbers().skip(89).limit(5).forEachOrdered(n -> System.out.println(n + " (" + n.getClass().getSimpleName() + ")"));
+		try {
+			new ExactFactorials().ints(OverflowPolicy.THROW).limit(20).sum();
+		} catch(ArithmeticException overflow) {
+			System.out.println("Factorials as ints: " + overflow.getMessage());
+		}
+
 		// Infinite stream of Factorials (overflows before long, not really infinite) 
 		System.out.println();
 		System.out.println("Factorials:");
@@ -65,6 +110,16 @@ public class Series {
 		Stream<BigInteger> bis = Stream.generate(new BigFactorialSeries());	
 		bis.limit(howMany).forEachOrdered(System.out::println);		
 
+		// Large factorials from the product tree, and a nearby one reusing the first as a checkpoint
+		System.out.println();
+		System.out.println("Factorials using a product tree:");
+		for(int n : new int[] { 100000, 100010 }) {
+			long factorialStartedAt = System.currentTimeMillis();
+			BigInteger factorial = Factorials.factorial(n);
+			System.out.println("- " + n + "! has " + factorial.bitLength() + " bits, took " + (System.currentTimeMillis() - factorialStartedAt) + " ms");
+		}
+		System.out.println("- series continuing from 100010!: " + Stream.generate(new BigFactorialSeries(100010)).limit(3).map(BigInteger::bitLength).collect(Collectors.toList()) + " bits");
+
 		// Infinite stream of words from a sentence (empty strings before long, as sentence is finite.)
 		System.out.println();
 		System.out.println("Words from a sentence:");
@@ -72,6 +127,16 @@ public class Series {
 		Stream<String> s5 = Stream.generate(new StringWord("Returns an infinite sequential unordered stream where each element is generated by the provided Supplier")); 		
 		s5.limit(howMany).forEachOrdered(System.out::println);		
 
+		// Finite, sized streams of the same series, which end without needing a limit
+		System.out.println();
+		System.out.println("Sized series sources:");
+		Integer fibonacciNumbers[] = SeriesSources.fibonacci(howMany).toArray(Integer[]::new);
+		System.out.println("- " + fibonacciNumbers.length + " Fibonacci numbers, last " + fibonacciNumbers[fibonacciNumbers.length-1]);
+		System.out.println("- factorials: " + SeriesSources.factorials(10).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+		System.out.println("- e approximated by " + SeriesSources.approxE(20).reduce((x, y) -> y).get());
+		System.out.println("- words: " + SeriesSources.words("Returns an infinite sequential unordered stream").collect(Collectors.joining(" / ")));
+		System.out.println("- " + SeriesSources.primes(1000).count() + " primes");
+
 		// Infinite stream of random numbers
 		System.out.println();
 		System.out.println("Random numbers:");
@@ -83,9 +148,31 @@ public class Series {
 		// Infinite stream of Prime numbers 
 		System.out.println();
 		System.out.println("Primes:");
-		howMany = 1000000;		// Probably takes an hour to reach a million
+		howMany = 1000000;		// Under a second using the segmented sieve - TrialDivisionPrimeSeries probably takes an hour to reach a million
 		Stream<PrimeSeries.Prime> primes = Stream.generate(new PrimeSeries()); 		
-		primes.limit(howMany).filter(p -> p.m_index % 10000 == 0).forEachOrdered(System.out::println);		
+		primes.limit(howMany).filter(p -> p.m_index % 10000 == 0).forEachOrdered(System.out::println);
+
+		// Parallel stream of primes, split into independently sieved ranges. Cross-checked in order against the sequential PrimeSeries.
+		System.out.println();
+		System.out.println("Primes in parallel:");
+		int primesBelow = 100000000;
+		long msStartedAt = System.currentTimeMillis();
+		int parallelPrimes[] = StreamSupport.intStream(PrimeSieve.primeRange(2, primesBelow), true).toArray();
+		long parallelMs = System.currentTimeMillis() - msStartedAt;
+		PrimeSeries sequentialPrimes = new PrimeSeries();
+		boolean sameAsSequential = Arrays.stream(parallelPrimes).allMatch(p -> p == sequentialPrimes.get().m_primeNumber);
+		System.out.println(parallelPrimes.length + " primes below " + primesBelow + " took " + parallelMs + " ms, " +
+							(sameAsSequential ? "same as" : "DIFFERENT from") + " sequential series");
+
+		// Heap retained by the history of primes kept by the trial division series, against the boxed List<Integer> it used to use 
+		System.out.println();
+		System.out.println("Trial division primes:");
+		howMany = 50000;
+		TrialDivisionPrimeSeries trialDivision = new TrialDivisionPrimeSeries();
+		Stream.generate(trialDivision).limit(howMany).filter(p -> p.m_index % 10000 == 0).forEachOrdered(System.out::println);
+		IntStore history = trialDivision.m_primesSoFar;
+		System.out.println("History of " + history.size() + " primes retains " + history.footprintBytes() + " bytes, against about " + 
+							IntStore.boxedListFootprintBytes(history.size(), history.m_values.length) + " bytes as a List<Integer>");
 	}
 }
 
@@ -144,6 +231,96 @@ class FibonacciSeries2 implements UnaryOperator<FibonacciSeries2.FibonacciNumber
 	}
 }
 
+/**
+ * Random access to Fibonacci numbers by fast doubling, which reaches F(n) in O(log n) steps rather than iterating from the seed:
+ * 
+ *   F(2k)   = F(k) * (2F(k+1) - F(k))
+ *   F(2k+1) = F(k)^2 + F(k+1)^2
+ *   
+ * Indexed from F(0) = 0, F(1) = 1, so the series produced by FibonacciSeries starts at F(1). The int based FibonacciSeries overflows
+ * after F(46); the long version here is exact up to F(92), and the BigInteger version has no limit.
+ */
+class FastFibonacci {
+
+	static final int MAX_LONG_INDEX = 92;		// F(93) overflows a long
+
+	static long fibonacci(int n) {
+		if(n < 0) {
+			throw new IllegalArgumentException("Negative Fibonacci index: " + n);
+		}
+		if(n > MAX_LONG_INDEX) {
+			throw new ArithmeticException("F(" + n + ") overflows a long");
+		}
+		long a = 0;		// F(k)
+		long b = 1;		// F(k+1)
+		for(int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+			long c = a * (2*b - a);
+			long d = a*a + b*b;		// Can only wrap on the final step for F(92), where it is then discarded
+			if((n & bit) == 0) {
+				a = c;
+				b = d;
+			}
+			else {
+				a = d;
+				b = c + d;
+			}
+		}
+		return a;
+	}
+
+	static BigInteger bigFibonacci(long n) {
+		return fibonacciPair(n)[0];
+	}
+
+	// F(n) and F(n+1)
+	static BigInteger[] fibonacciPair(long n) {
+		if(n < 0) {
+			throw new IllegalArgumentException("Negative Fibonacci index: " + n);
+		}
+		BigInteger a = BigInteger.ZERO;
+		BigInteger b = BigInteger.ONE;
+		for(long bit = Long.highestOneBit(n); bit != 0; bit >>>= 1) {
+			BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+			BigInteger d = a.multiply(a).add(b.multiply(b));
+			if((n & bit) == 0) {
+				a = c;
+				b = d;
+			}
+			else {
+				a = d;
+				b = c.add(d);
+			}
+		}
+		return new BigInteger[] { a, b };
+	}
+
+	// F(from) up to but not including F(to), jumping straight to F(from) and then iterating. A sized stream. 
+	static Stream<BigInteger> fibonacci(long from, long to) {
+		if(to < from) {
+			throw new IllegalArgumentException("Fibonacci range end " + to + " is before start " + from);
+		}
+		return SeriesSources.generate(new FibonacciRangeSupplier(fibonacciPair(from)), to - from);
+	}
+}
+
+class FibonacciRangeSupplier implements Supplier<BigInteger> {
+
+	BigInteger m_current;
+	BigInteger m_next;
+
+	FibonacciRangeSupplier(BigInteger[] pair) {
+		m_current = pair[0];
+		m_next = pair[1];
+	}
+
+	public BigInteger get() {
+		BigInteger latest = m_current;
+		m_current = m_next;
+		m_next = latest.add(m_next);
+		return latest;
+	}
+}
+
 /**
  * Approximations to the value of e (2.18281828 ...) produced using the formula:
  * 
@@ -179,6 +356,7 @@ class ApproxE implements UnaryOperator<Double> {
 
 // Try using BigDecimal instead of double to get lots more digits
 // https://docs.oracle.com/javase/8/docs/api/java/math/BigDecimal.html
+// Each term costs a full precision divide, so BinarySplittingE below is the better way to get thousands of digits.
 
 class BDApproxE implements UnaryOperator<BigDecimal> {		
 	
@@ -210,8 +388,106 @@ class BDApproxE implements UnaryOperator<BigDecimal> {
 	}
 }
 
+/**
+ * Evaluates a series of the form
+ * 
+ *   S = sum over n = 0 .. N-1 of  p(0)p(1)...p(n) / q(0)q(1)...q(n)
+ *   
+ * by binary splitting. Ranges of terms are combined pairwise as exact BigInteger fractions, with a single division at the end, instead
+ * of dividing out each term to full precision as BDApproxE does. The two halves of each range are independent, so the evaluation can 
+ * also be split across a ForkJoinPool.
+ */
+abstract class BinarySplittingSeries {
+
+	static final int PARALLEL_THRESHOLD = 2000;		// Ranges with fewer terms than this aren't split into further tasks
+
+	abstract BigInteger p(long n);
+	abstract BigInteger q(long n);
+
+	// Number of terms needed for the sum to be accurate to the given number of decimal places
+	abstract long termsFor(int digits);
+
+	BigDecimal evaluate(int digits) {
+		return evaluate(digits, null);
+	}
+
+	// The sum truncated to the given number of decimal places, evaluated on the pool if one is given 
+	BigDecimal evaluate(int digits, ForkJoinPool pool) {
+		long terms = termsFor(digits);
+		BigInteger pqt[] = (pool == null) ? split(0, terms) : pool.invoke(new SplitTask(this, 0, terms));
+		BigInteger scaled = pqt[2].multiply(BigInteger.TEN.pow(digits)).divide(pqt[1]);
+		return new BigDecimal(scaled, digits);
+	}
+
+	// P, Q and T for the terms in [a, b), where the sum of those terms is T/Q when scaled by the product of p and q up to a-1
+	BigInteger[] split(long a, long b) {
+		if(b - a == 1) {
+			BigInteger p = p(a);
+			return new BigInteger[] { p, q(a), p };
+		}
+		long m = (a + b) >>> 1;
+		return combine(split(a, m), split(m, b));
+	}
+
+	static BigInteger[] combine(BigInteger[] left, BigInteger[] right) {
+		BigInteger p = left[0].multiply(right[0]);
+		BigInteger q = left[1].multiply(right[1]);
+		BigInteger t = left[2].multiply(right[1]).add(left[0].multiply(right[2]));
+		return new BigInteger[] { p, q, t };
+	}
+
+	static class SplitTask extends RecursiveTask<BigInteger[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		BinarySplittingSeries m_series;
+		long m_a;
+		long m_b;
+
+		SplitTask(BinarySplittingSeries series, long a, long b) {
+			m_series = series;
+			m_a = a;
+			m_b = b;
+		}
+
+		protected BigInteger[] compute() {
+			if(m_b - m_a < PARALLEL_THRESHOLD) {
+				return m_series.split(m_a, m_b);
+			}
+			long m = (m_a + m_b) >>> 1;
+			SplitTask left = new SplitTask(m_series, m_a, m);
+			left.fork();
+			BigInteger right[] = new SplitTask(m_series, m, m_b).compute();
+			return combine(left.join(), right);
+		}
+	}
+}
+
+// e = 1/0! + 1/1! + 1/2! + ... , i.e. p(n) = 1, q(0) = 1, q(n) = n 
+class BinarySplittingE extends BinarySplittingSeries {
+
+	BigInteger p(long n) {
+		return BigInteger.ONE;
+	}
+
+	BigInteger q(long n) {
+		return n == 0 ? BigInteger.ONE : BigInteger.valueOf(n);
+	}
+
+	// The error after N terms is less than 2/N!, so find N with N! > 10^(digits+1)
+	long termsFor(int digits) {
+		double log10Factorial = 0;
+		long n = 1;
+		while(log10Factorial <= digits + 1) {
+			n++;
+			log10Factorial += Math.log10(n);
+		}
+		return n;
+	}
+}
+
 // A couple of Supplier examples for use with Stream.generate. NB An infinite stream is generated, so these are not
-// ideal examples .. Possibly need to use a spliterator to produce a true finite stream ?
+// ideal examples .. SeriesSources below wraps them in a spliterator to produce a true finite stream.
 
 class FactorialSeries implements IntSupplier {
 
@@ -241,6 +517,12 @@ class BigFactorialSeries implements Supplier<BigInteger> {
 		m_factorialNumber = BigInteger.ZERO;
 	}
 	
+	// Series starting from (n+1)!, jumping to n! using the Factorials product tree rather than multiplying up from 1
+	BigFactorialSeries(int n) {
+		m_previous = Factorials.factorial(n);
+		m_factorialNumber = BigInteger.valueOf(n);
+	}
+	
 	public BigInteger get() {
 		m_factorialNumber = m_factorialNumber.add(BigInteger.ONE);
 		BigInteger next= m_previous.multiply(m_factorialNumber);
@@ -249,6 +531,317 @@ class BigFactorialSeries implements Supplier<BigInteger> {
 	}
 }
 
+/**
+ * n! using a balanced product tree. BigInteger multiplication is much more efficient on operands of similar size than on a long chain
+ * of ever larger numbers multiplied by small ones, as in BigFactorialSeries. Subtrees over large ranges are multiplied in parallel on 
+ * the common fork/join pool. The most recently used results are kept as checkpoints in a small LRU cache, so a later request
+ * for a nearby n only has to multiply in the numbers between the checkpoint and n.
+ */
+class Factorials {
+
+	static final int LEAF_SIZE = 32;				// Ranges this small are multiplied out directly, mostly as longs
+	static final int PARALLEL_THRESHOLD = 2000;		// Ranges smaller than this aren't split into further tasks
+	static final int CHECKPOINTS = 16;
+
+	static Map<Integer, BigInteger> s_checkpoints = new LinkedHashMap<Integer, BigInteger>(CHECKPOINTS * 2, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<Integer, BigInteger> eldest) {
+			return size() > CHECKPOINTS;
+		}
+	};
+
+	static BigInteger factorial(int n) {
+		if(n < 0) {
+			throw new IllegalArgumentException("Factorial of negative number: " + n);
+		}
+
+		// Start from the highest checkpoint at or below n
+		int from = 0;
+		BigInteger base = BigInteger.ONE;
+		synchronized(s_checkpoints) {
+			Optional<Integer> checkpoint = s_checkpoints.keySet().stream().filter(k -> k <= n).max(Integer::compare);
+			if(checkpoint.isPresent()) {
+				from = checkpoint.get();
+				base = s_checkpoints.get(from);
+			}
+		}
+		if(from == n) {
+			return base;
+		}
+
+		BigInteger result = base.multiply(product(from + 1, n));
+		synchronized(s_checkpoints) {
+			s_checkpoints.put(n, result);
+		}
+		return result;
+	}
+
+	// lo * (lo+1) * ... * hi
+	static BigInteger product(int lo, int hi) {
+		if(hi - lo < PARALLEL_THRESHOLD) {
+			return productTree(lo, hi);
+		}
+		return ForkJoinPool.commonPool().invoke(new ProductTask(lo, hi));
+	}
+
+	static BigInteger productTree(int lo, int hi) {
+		if(hi - lo < LEAF_SIZE) {
+			BigInteger result = BigInteger.ONE;
+			long partial = 1;
+			for(int i = lo; i <= hi; i++) {
+				if(partial > Long.MAX_VALUE / i) {
+					result = result.multiply(BigInteger.valueOf(partial));
+					partial = 1;
+				}
+				partial *= i;
+			}
+			return result.multiply(BigInteger.valueOf(partial));
+		}
+		int mid = (lo + hi) >>> 1;
+		return productTree(lo, mid).multiply(productTree(mid + 1, hi));
+	}
+
+	static class ProductTask extends RecursiveTask<BigInteger> {
+
+		private static final long serialVersionUID = 1L;
+
+		int m_lo;
+		int m_hi;
+
+		ProductTask(int lo, int hi) {
+			m_lo = lo;
+			m_hi = hi;
+		}
+
+		protected BigInteger compute() {
+			if(m_hi - m_lo < PARALLEL_THRESHOLD) {
+				return productTree(m_lo, m_hi);
+			}
+			int mid = (m_lo + m_hi) >>> 1;
+			ProductTask lower = new ProductTask(m_lo, mid);
+			lower.fork();
+			BigInteger upper = new ProductTask(mid + 1, m_hi).compute();
+			return lower.join().multiply(upper);
+		}
+	}
+}
+
+// What a primitive series does when its next value no longer fits
+enum OverflowPolicy {
+	THROW,			// Throw an ArithmeticException
+	SATURATE,		// Repeat the maximum value of the type, or the minimum if the series falls below the type's range
+	STOP,			// End the stream
+	PROMOTE			// Carry on as BigInteger values - only possible for a Stream<Number>
+}
+
+/**
+ * A series of longs stepped with Math.addExact/multiplyExact, so that overflow is detected rather than wrapping as FactorialSeries and 
+ * FibonacciSeries do. The LongStream and IntStream forms are allocation free; the promoting Stream<Number> boxes each value, but 
+ * only uses BigInteger arithmetic once the series has overflowed.
+ */
+abstract class ExactLongSeries {
+
+	// Advances to the next value, throwing an ArithmeticException and leaving the series unchanged if it doesn't fit in a long
+	abstract long next();
+
+	// Advances to the next value as a BigInteger, for use once next() has overflowed 
+	abstract BigInteger nextBig();
+
+	LongStream longs(OverflowPolicy policy) {
+		return StreamSupport.longStream(new ExactLongSpliterator(this, policy, Long.MIN_VALUE, Long.MAX_VALUE), false);
+	}
+
+	IntStream ints(OverflowPolicy policy) {
+		return StreamSupport.intStream(new ExactIntSpliterator(new ExactLongSpliterator(this, policy, Integer.MIN_VALUE, Integer.MAX_VALUE)), false);
+	}
+
+	Stream<Number> numbers() {
+		return StreamSupport.stream(new PromotingSpliterator(this), false);
+	}
+}
+
+class ExactLongSpliterator extends Spliterators.AbstractLongSpliterator {
+
+	ExactLongSeries m_series;
+	OverflowPolicy m_policy;
+	long m_min;				// Smallest value the target type holds
+	long m_max;				// Largest value the target type holds
+	long m_value;			// Latest value, set by advance()
+	long m_count;
+	boolean m_saturated;
+	boolean m_stopped;
+
+	ExactLongSpliterator(ExactLongSeries series, OverflowPolicy policy, long min, long max) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		if(policy == OverflowPolicy.PROMOTE) {
+			throw new IllegalArgumentException("Primitive streams can't promote to BigInteger - use numbers()");
+		}
+		m_series = series;
+		m_policy = policy;
+		m_min = min;
+		m_max = max;
+		m_count = 0;
+		m_saturated = false;
+		m_stopped = false;
+	}
+
+	public boolean tryAdvance(LongConsumer action) {
+		if(!advance()) {
+			return false;
+		}
+		action.accept(m_value);
+		return true;
+	}
+
+	// Moves on to the next value in m_value, applying the policy if it doesn't fit in [m_min, m_max]
+	boolean advance() {
+		if(m_stopped) {
+			return false;
+		}
+		if(!m_saturated) {
+			long value = 0;
+			boolean overflowed;
+			boolean below = false;		// Which end of the range an overflow went past
+			try {
+				value = m_series.next();
+				overflowed = value > m_max || value < m_min;
+				below = value < m_min;
+			} catch(ArithmeticException e) {
+				overflowed = true;
+				// The series no longer fits in a long, so only the exact value tells which way it went. It isn't advanced again after this.
+				below = m_policy == OverflowPolicy.SATURATE && m_series.nextBig().signum() < 0;
+			}
+			if(overflowed) {
+				switch(m_policy) {
+					case SATURATE : m_saturated = true; value = below ? m_min : m_max; break;
+					case STOP : m_stopped = true; return false;
+					default : throw new ArithmeticException("Series overflows after " + m_count + " values, range " + m_min + " to " + m_max);
+				}
+			}
+			m_value = value;
+		}
+		m_count++;
+		return true;
+	}
+}
+
+// The int form of an ExactLongSpliterator bounded to the int range, passing each value straight on without boxing or a lambda
+class ExactIntSpliterator extends Spliterators.AbstractIntSpliterator {
+
+	ExactLongSpliterator m_longs;
+
+	ExactIntSpliterator(ExactLongSpliterator longs) {
+		super(Long.MAX_VALUE, longs.characteristics());
+		m_longs = longs;
+	}
+
+	public boolean tryAdvance(IntConsumer action) {
+		if(!m_longs.advance()) {
+			return false;
+		}
+		action.accept((int)m_longs.m_value);
+		return true;
+	}
+}
+
+class PromotingSpliterator extends Spliterators.AbstractSpliterator<Number> {
+
+	ExactLongSeries m_series;
+	boolean m_promoted;
+
+	PromotingSpliterator(ExactLongSeries series) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		m_series = series;
+		m_promoted = false;
+	}
+
+	public boolean tryAdvance(Consumer<? super Number> action) {
+		if(!m_promoted) {
+			try {
+				action.accept(m_series.next());
+				return true;
+			} catch(ArithmeticException e) {
+				m_promoted = true;
+			}
+		}
+		action.accept(m_series.nextBig());
+		return true;
+	}
+}
+
+// 1!, 2!, 3!, ...
+class ExactFactorials extends ExactLongSeries {
+
+	long m_n = 0;
+	long m_value = 1;
+	BigInteger m_bigValue = null;
+
+	long next() {
+		m_value = Math.multiplyExact(m_value, m_n + 1);
+		m_n++;
+		return m_value;
+	}
+
+	BigInteger nextBig() {
+		m_bigValue = (m_bigValue == null ? BigInteger.valueOf(m_value) : m_bigValue).multiply(BigInteger.valueOf(++m_n));
+		return m_bigValue;
+	}
+}
+
+// 1, 1, 2, 3, 5, ... as for FibonacciSeries
+class ExactFibonacci extends ExactLongSeries {
+
+	long m_previous = 1;
+	long m_latest = 0;
+	BigInteger m_bigPrevious = null;
+	BigInteger m_bigLatest = null;
+
+	long next() {
+		long next = Math.addExact(m_previous, m_latest);
+		m_previous = m_latest;
+		m_latest = next;
+		return next;
+	}
+
+	BigInteger nextBig() {
+		if(m_bigLatest == null) {
+			m_bigPrevious = BigInteger.valueOf(m_previous);
+			m_bigLatest = BigInteger.valueOf(m_latest);
+		}
+		BigInteger next = m_bigPrevious.add(m_bigLatest);
+		m_bigPrevious = m_bigLatest;
+		m_bigLatest = next;
+		return next;
+	}
+}
+
+// 1, base, base^2, ...
+class ExactPowers extends ExactLongSeries {
+
+	long m_base;
+	long m_value;
+	boolean m_started = false;
+	BigInteger m_bigValue = null;
+
+	ExactPowers(long base) {
+		m_base = base;
+		m_value = 1;
+	}
+
+	long next() {
+		if(m_started) {
+			m_value = Math.multiplyExact(m_value, m_base);
+		}
+		m_started = true;
+		return m_value;
+	}
+
+	BigInteger nextBig() {
+		m_bigValue = (m_bigValue == null ? BigInteger.valueOf(m_value) : m_bigValue).multiply(BigInteger.valueOf(m_base));
+		return m_bigValue;
+	}
+}
+
 class StringWord implements Supplier<String> {
 	
 	String m_source;
@@ -272,13 +865,142 @@ class StringWord implements Supplier<String> {
 	}
 }
 
+/**
+ * Finite, ordered stream sources for the series above. Given a bound, the spliterators report SIZED and SUBSIZED, so the stream ends
+ * by itself rather than relying on limit(), and operations such as toArray() and count() know the size up front. Without a bound
+ * (UNBOUNDED) the streams are infinite, as with Stream.generate/iterate.
+ */
+class SeriesSources {
+
+	static final long UNBOUNDED = -1;
+
+	static Stream<Integer> fibonacci(long count) {
+		return iterate(1, new FibonacciSeries(), count);
+	}
+
+	static IntStream factorials(long count) {
+		return StreamSupport.intStream(new SeriesIntSpliterator(new FactorialSeries(), count), false);
+	}
+
+	static Stream<BigInteger> bigFactorials(long count) {
+		return generate(new BigFactorialSeries(), count);
+	}
+
+	static Stream<Double> approxE(long count) {
+		return iterate(0.0, new ApproxE(), count);
+	}
+
+	static Stream<BigDecimal> bdApproxE(long count) {
+		return iterate(BigDecimal.ZERO, new BDApproxE(), count);
+	}
+
+	static Stream<PrimeSeries.Prime> primes(long count) {
+		return generate(new PrimeSeries(), count);
+	}
+
+	// All the words of the source, sized by the number of words. Unlike StringWord there are no empty strings once the words run out. 
+	static Stream<String> words(String source) {
+		String trimmed = source.trim();
+		String words[] = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+		return StreamSupport.stream(Spliterators.spliterator(words, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+
+	static <T> Stream<T> generate(Supplier<T> supplier, long count) {
+		return StreamSupport.stream(new SeriesSpliterator<T>(supplier, count), false);
+	}
+
+	// Equivalent of Stream.iterate(seed, op).limit(count), with the seed as the first element
+	static <T> Stream<T> iterate(T seed, UnaryOperator<T> op, long count) {
+		return generate(new IteratingSupplier<T>(seed, op), count);
+	}
+
+	static int characteristics(long count) {
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+		return count == UNBOUNDED ? characteristics : characteristics | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE;
+	}
+}
+
+// Supplies the seed first, then each result of applying the operator to the previous value  
+class IteratingSupplier<T> implements Supplier<T> {
+
+	T m_previous;
+	UnaryOperator<T> m_op;
+	boolean m_started;
+
+	IteratingSupplier(T seed, UnaryOperator<T> op) {
+		m_previous = seed;
+		m_op = op;
+		m_started = false;
+	}
+
+	public T get() {
+		if(m_started) {
+			m_previous = m_op.apply(m_previous);
+		}
+		m_started = true;
+		return m_previous;
+	}
+}
+
+class SeriesSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+	Supplier<T> m_supplier;
+	long m_remaining;		// UNBOUNDED for an infinite series
+
+	SeriesSpliterator(Supplier<T> supplier, long count) {
+		super(count == SeriesSources.UNBOUNDED ? Long.MAX_VALUE : count, SeriesSources.characteristics(count));
+		m_supplier = supplier;
+		m_remaining = count;
+	}
+
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if(m_remaining == 0) {
+			return false;
+		}
+		if(m_remaining != SeriesSources.UNBOUNDED) {
+			m_remaining--;
+		}
+		action.accept(m_supplier.get());
+		return true;
+	}
+
+	public long estimateSize() {
+		return m_remaining == SeriesSources.UNBOUNDED ? Long.MAX_VALUE : m_remaining;
+	}
+}
+
+class SeriesIntSpliterator extends Spliterators.AbstractIntSpliterator {
+
+	IntSupplier m_supplier;
+	long m_remaining;		// UNBOUNDED for an infinite series
+
+	SeriesIntSpliterator(IntSupplier supplier, long count) {
+		super(count == SeriesSources.UNBOUNDED ? Long.MAX_VALUE : count, SeriesSources.characteristics(count));
+		m_supplier = supplier;
+		m_remaining = count;
+	}
+
+	public boolean tryAdvance(IntConsumer action) {
+		if(m_remaining == 0) {
+			return false;
+		}
+		if(m_remaining != SeriesSources.UNBOUNDED) {
+			m_remaining--;
+		}
+		action.accept(m_supplier.getAsInt());
+		return true;
+	}
+
+	public long estimateSize() {
+		return m_remaining == SeriesSources.UNBOUNDED ? Long.MAX_VALUE : m_remaining;
+	}
+}
+
 class PrimeSeries implements Supplier<PrimeSeries.Prime> {
 
-	List<Integer> m_primesSoFar;
-	int m_reached;
+	PrimeSieve m_sieve;
 	int m_count;
 	long m_msStartedAt;
-	int m_previousStopAtIndex;
 
 	static class Prime {
 		int m_index;
@@ -296,15 +1018,43 @@ class PrimeSeries implements Supplier<PrimeSeries.Prime> {
 		}
 	}
 		
+	// Primes are produced lazily by a segmented sieve, so memory use stays bounded by the sieve segment size
 	PrimeSeries() {
-		m_primesSoFar = new ArrayList<Integer>();
+		m_sieve = new PrimeSieve(2, Integer.MAX_VALUE);
+		m_count = 0;
+		m_msStartedAt = System.currentTimeMillis();
+	}
+	
+	public Prime get() {
+		int nextPrime = m_sieve.next();
+		if(nextPrime == -1) {
+			throw new NoSuchElementException("No more primes below " + Integer.MAX_VALUE);
+		}
+		m_count++;
+		long ms = System.currentTimeMillis() - m_msStartedAt;
+		return new Prime(m_count, nextPrime, ms);
+	}
+}
+
+// The original trial division version of PrimeSeries, testing each candidate against the primes found so far. Kept for comparison with
+// the sieve - about 650,000 primes in 1000 seconds.
+class TrialDivisionPrimeSeries implements Supplier<PrimeSeries.Prime> {
+
+	IntStore m_primesSoFar;		// Primitive ints rather than a List<Integer>, avoiding an Integer object per prime
+	int m_reached;
+	int m_count;
+	long m_msStartedAt;
+	int m_previousStopAtIndex;
+
+	TrialDivisionPrimeSeries() {
+		m_primesSoFar = new IntStore();
 		m_reached = 0;
 		m_count = 0;
 		m_msStartedAt = new Date().getTime();
 		m_previousStopAtIndex = 0;
 	}
 	
-	public Prime get() {
+	public PrimeSeries.Prime get() {
 		int nextPrime = -1;
 		if(m_primesSoFar.size() == 0) {
 			nextPrime = 2;
@@ -334,7 +1084,7 @@ class PrimeSeries implements Supplier<PrimeSeries.Prime> {
 				//Optional<Integer> factor = m_primesSoFar.stream().filter(p -> reachedNow % p == 0).findFirst();
 				
 				// Combining predicates seems to be a lot faster then two separate filters. Stream produces about 650,000 primes in 1000 seconds 
-				Optional<Integer> factor = m_primesSoFar.stream().filter(p -> (p <= stopAt) && (reachedNow % p == 0)).findFirst();
+				OptionalInt factor = m_primesSoFar.stream().filter(p -> (p <= stopAt) && (reachedNow % p == 0)).findFirst();
 				// Parallel no faster.
 				//Optional<Integer> factor = m_primesSoFar.stream().parallel().filter(p -> (p <= stopAt) && (reachedNow % p == 0)).findFirst();
 				//Optional<Integer> factor = m_primesSoFar.stream().parallel().filter(p -> (p <= stopAt) && (reachedNow % p == 0)).findAny();
@@ -353,6 +1103,60 @@ class PrimeSeries implements Supplier<PrimeSeries.Prime> {
 		m_reached = nextPrime;
 		m_primesSoFar.add(m_reached);
 		long ms = new Date().getTime() - m_msStartedAt;
-		return new Prime(m_count, nextPrime, ms);
+		return new PrimeSeries.Prime(m_count, nextPrime, ms);
+	}
+}
+
+/**
+ * Growable store of primitive ints, for series which keep a history of the values produced. Avoids the Integer object and reference
+ * per value of a List<Integer>, and gives an IntStream view over the values stored.
+ */
+class IntStore {
+
+	int[] m_values;
+	int m_size;
+
+	IntStore() {
+		this(16);
+	}
+
+	IntStore(int initialCapacity) {
+		m_values = new int[Math.max(initialCapacity, 1)];
+		m_size = 0;
+	}
+
+	void add(int value) {
+		if(m_size == m_values.length) {
+			m_values = Arrays.copyOf(m_values, m_size + (m_size >> 1) + 1);
+		}
+		m_values[m_size++] = value;
+	}
+
+	int get(int index) {
+		if(index < 0 || index >= m_size) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + m_size);
+		}
+		return m_values[index];
+	}
+
+	int size() { return m_size; }
+
+	IntStream stream() {
+		return Arrays.stream(m_values, 0, m_size);
+	}
+
+	// Approximate retained heap in bytes, assuming a 64-bit JVM with compressed references: 12 byte object headers, 16 byte array 
+	// headers, 8 byte alignment
+	long footprintBytes() {
+		return align(12 + 4 + 4) + align(16 + 4L * m_values.length);
+	}
+
+	// The same estimate for an ArrayList<Integer> of the given size and capacity, for comparison. Ignores the small Integer cache.
+	static long boxedListFootprintBytes(int size, int capacity) {
+		return align(12 + 4 + 4 + 4) + align(16 + 4L * capacity) + size * align(12 + 4);
+	}
+
+	static long align(long bytes) {
+		return (bytes + 7) & ~7L;
 	}
 }
\ No newline at end of file
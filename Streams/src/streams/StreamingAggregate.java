@@ -0,0 +1,10 @@
+package streams;
+
+// Aggregation kept up to date one record at a time, such as a league table, which can publish a snapshot of itself at any point
+interface StreamingAggregate<T> {
+	void add(T record);
+	void publish();
+
+	// Called after the last record, for aggregates which hold back a partial group
+	default void endOfInput() {}
+}
@@ -0,0 +1,127 @@
+package streams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds records from a line source - a file, a named pipe or standard input - into an aggregate as they arrive, rather than loading
+ * them all first. The reading thread parses each line and puts the record on a bounded queue, blocking while the queue is full, so
+ * a slow aggregate holds back the reader and memory use stays flat however many records pass through. A second thread takes the
+ * records off the queue into the aggregate, and a scheduled thread publishes a snapshot of the aggregate at a fixed interval.
+ *
+ * Java 8 has no java.util.concurrent.Flow, so the queue provides the back pressure.
+ */
+class StreamingIngestor<T> {
+
+	static final int DEFAULT_CAPACITY = 1024;
+	static final long POLL_MILLIS = 100;
+
+	RecordParser<T> m_parser;
+	StreamingAggregate<T> m_aggregate;		// Guarded by itself, between the consumer and the snapshots
+	BlockingQueue<T> m_queue;
+	long m_intervalMillis;
+	volatile boolean m_endOfInput;
+	volatile long m_lines;
+	volatile long m_accepted;
+	volatile long m_rejected;
+
+	StreamingIngestor(RecordParser<T> parser, StreamingAggregate<T> aggregate, long intervalMillis) {
+		this(parser, aggregate, intervalMillis, DEFAULT_CAPACITY);
+	}
+
+	StreamingIngestor(RecordParser<T> parser, StreamingAggregate<T> aggregate, long intervalMillis, int capacity) {
+		m_parser = parser;
+		m_aggregate = aggregate;
+		m_queue = new ArrayBlockingQueue<>(capacity);
+		m_intervalMillis = intervalMillis;
+	}
+
+	// A file path, or "-" for standard input
+	static BufferedReader open(String source, Charset charset) throws IOException {
+		if(source.equals("-")) {
+			return new BufferedReader(new InputStreamReader(System.in, charset));
+		}
+		return Files.newBufferedReader(Paths.get(source), charset);
+	}
+
+	// Reads the source to the end, returning once every record has reached the aggregate and the final snapshot has been published
+	void run(BufferedReader source) throws IOException, InterruptedException {
+		Thread consumer = new Thread(this::consume, "streaming-consumer");
+		ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "streaming-publisher");
+			t.setDaemon(true);
+			return t;
+		});
+		consumer.start();
+		publisher.scheduleAtFixedRate(this::publish, m_intervalMillis, m_intervalMillis, TimeUnit.MILLISECONDS);
+		try {
+			String line;
+			while((line = source.readLine()) != null) {
+				long lineNumber = ++m_lines;
+				String thisLine = line;
+				T record = m_parser.parse(line, reason -> reject(lineNumber, thisLine, reason));
+				if(record != null) {
+					while(!m_queue.offer(record, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+						if(!consumer.isAlive()) {
+							throw new IllegalStateException("Streaming consumer has stopped");
+						}
+					}
+				}
+			}
+		} finally {
+			m_endOfInput = true;
+			consumer.join();
+			publisher.shutdownNow();
+			publisher.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		synchronized(m_aggregate) {
+			m_aggregate.endOfInput();
+		}
+		publish();
+	}
+
+	void consume() {
+		try {
+			while(true) {
+				T record = m_queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(record == null) {
+					if(m_endOfInput && m_queue.isEmpty()) {
+						return;
+					}
+					continue;
+				}
+				synchronized(m_aggregate) {
+					m_aggregate.add(record);
+				}
+				m_accepted++;
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Only the reading thread rejects lines, so reporting them as they are found doesn't hold up anything else
+	void reject(long lineNumber, String line, String reason) {
+		m_rejected++;
+		System.err.println("Line " + lineNumber + ": " + reason + ": " + line);
+	}
+
+	void publish() {
+		synchronized(m_aggregate) {
+			m_aggregate.publish();
+		}
+	}
+
+	public String toString() {
+		return m_lines + " lines: " + m_accepted + " accepted, " + m_rejected + " rejected";
+	}
+}
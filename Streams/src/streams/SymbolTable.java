@@ -0,0 +1,72 @@
+package streams;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of names such as teams, parties and constituencies, giving each distinct name a dense int id from 0 as it is first
+ * seen. Names are matched ignoring case, folded once when a name is added, so grouping and equality tests can then work on the ids.
+ * Each id keeps the spelling it was first seen with, and loaders can share that one String rather than holding a copy per row.
+ *
+ * Safe to use from parallel loads. Spellings already seen are looked up without locking or folding; only new spellings lock.
+ */
+class SymbolTable {
+
+	ConcurrentHashMap<String, Integer> m_spellings = new ConcurrentHashMap<>();		// Each spelling seen, to its id
+	Map<String, Integer> m_folded = new HashMap<>();									// Folded names, guarded by this
+	volatile String[] m_names = new String[64];
+	volatile int m_size = 0;
+
+	int id(String name) {
+		Integer id = m_spellings.get(name);
+		return id != null ? id : add(name);
+	}
+
+	synchronized int add(String name) {
+		String key = fold(name);
+		Integer id = m_folded.get(key);
+		if(id == null) {
+			id = m_size;
+			if(id == m_names.length) {
+				m_names = Arrays.copyOf(m_names, id * 2);
+			}
+			m_names[id] = name;
+			m_size = id + 1;
+			m_folded.put(key, id);
+		}
+		m_spellings.put(name, id);
+		return id;
+	}
+
+	// Id of the name, ignoring case, or -1 if it hasn't been seen
+	int find(String name) {
+		Integer id = m_spellings.get(name);
+		if(id == null) {
+			synchronized(this) {
+				id = m_folded.get(fold(name));
+			}
+		}
+		return id == null ? -1 : id;
+	}
+
+	String name(int id) {
+		if(id < 0 || id >= m_size) {
+			throw new IndexOutOfBoundsException("Symbol " + id + " of " + m_size);
+		}
+		return m_names[id];
+	}
+
+	// The shared spelling for the name, adding it if needed
+	String intern(String name) {
+		return name(id(name));
+	}
+
+	int size() { return m_size; }
+
+	static String fold(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,229 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+class TeamSeason {
+
+	static final int HOME = 0;
+	static final int AWAY = 1;
+	static final int FORM_LENGTH = 5;
+	static final char[] s_formLetters = { 'W', 'D', 'L' };
+
+	String m_team;
+	int m_teamId = -1;				// Id in the names the matches were loaded with, or -1 if not known
+	int m_played;
+	int m_won;
+	int m_drawn;
+	int m_lost;
+	int m_points;
+	int m_for;
+	int m_against;
+	// Home and away splits, indexed by HOME or AWAY
+	int[] m_venueWon = new int[2];
+	int[] m_venueDrawn = new int[2];
+	int[] m_venueLost = new int[2];
+	int[] m_venueFor = new int[2];
+	int[] m_venueAgainst = new int[2];
+	// The latest results, two bits each (0 won, 1 drawn, 2 lost), most recent in the lowest bits
+	int m_form;
+	int m_formLength;
+
+	String team() { return m_team; }
+	int teamId() { return m_teamId; }
+	int played() { return m_played; }
+	int won() { return m_won; }
+	int drawn() { return m_drawn; }
+	int lost() { return m_lost; }
+	int points() { return m_points; }
+	int goalsFor() { return m_for; }
+	int goalsAgainst() { return m_against; }
+	int goalDifference() { return m_for - m_against; }
+	int won(int venue) { return m_venueWon[venue]; }
+	int drawn(int venue) { return m_venueDrawn[venue]; }
+	int lost(int venue) { return m_venueLost[venue]; }
+	int goalsFor(int venue) { return m_venueFor[venue]; }
+	int goalsAgainst(int venue) { return m_venueAgainst[venue]; }
+
+	// Latest results, oldest first, e.g. "WWDLW"
+	String form() {
+		char[] form = new char[m_formLength];
+		for(int i = 0; i < m_formLength; i++) {
+			form[m_formLength - 1 - i] = s_formLetters[(m_form >>> (2 * i)) & 3];
+		}
+		return new String(form);
+	}
+
+	void addResult(boolean home, int goalsFor, int goalsAgainst) {
+		int venue = home ? HOME : AWAY;
+		int outcome;
+		m_played++;
+		if(goalsFor > goalsAgainst) {
+			m_won++;
+			m_venueWon[venue]++;
+			m_points += 3;
+			outcome = 0;
+		}
+		else if(goalsFor == goalsAgainst) {
+			m_drawn++;
+			m_venueDrawn[venue]++;
+			m_points += 1;
+			outcome = 1;
+		}
+		else {
+			m_lost++;
+			m_venueLost[venue]++;
+			outcome = 2;
+		}
+		m_for += goalsFor;
+		m_against += goalsAgainst;
+		m_venueFor[venue] += goalsFor;
+		m_venueAgainst[venue] += goalsAgainst;
+		addForm(outcome, 1);
+	}
+
+	void addForm(int results, int count) {
+		int n = Math.min(count, FORM_LENGTH);
+		m_form = ((m_form << (2 * n)) | (results & ((1 << (2 * n)) - 1))) & ((1 << (2 * FORM_LENGTH)) - 1);
+		m_formLength = Math.min(FORM_LENGTH, m_formLength + n);
+	}
+
+	// Adds in the other season, whose results came after this one's
+	TeamSeason combine(TeamSeason other) {
+		if(m_team == null) {
+			m_team = other.m_team;
+			m_teamId = other.m_teamId;
+		}
+		m_played += other.m_played;
+		m_won += other.m_won;
+		m_drawn += other.m_drawn;
+		m_lost += other.m_lost;
+		m_points += other.m_points;
+		m_for += other.m_for;
+		m_against += other.m_against;
+		for(int venue = HOME; venue <= AWAY; venue++) {
+			m_venueWon[venue] += other.m_venueWon[venue];
+			m_venueDrawn[venue] += other.m_venueDrawn[venue];
+			m_venueLost[venue] += other.m_venueLost[venue];
+			m_venueFor[venue] += other.m_venueFor[venue];
+			m_venueAgainst[venue] += other.m_venueAgainst[venue];
+		}
+		addForm(other.m_form, other.m_formLength);
+		return this;
+	}
+
+	TeamSeason copy() {
+		return new TeamSeason().combine(this);
+	}
+
+	// Every team's season, gathered from the matches in one pass with each match added straight to both teams' seasons, so nothing
+	// is allocated per match. Not UNORDERED, so that partial seasons from a parallel stream are combined in order and the form is
+	// the latest results. The seasons are in team id order.
+	static Collector<FootballMatch, Seasons, List<TeamSeason>> collector() {
+		return Collector.of(() -> new Seasons(false), Seasons::add, Seasons::combine, Seasons::seasons);
+	}
+
+	// As above, keeping the head-to-head results along with the seasons for ordering them into a league
+	static Collector<FootballMatch, Seasons, Seasons> seasonsWithResults() {
+		return Collector.of(() -> new Seasons(true), Seasons::add, Seasons::combine, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	// Seasons for the teams in one set of matches, and the results between the teams. The seasons are held densely in the order the
+	// teams were first seen, and found by team id through a small open addressing table, so the state is sized by the teams in these
+	// matches rather than by every team in the names they were loaded with.
+	static class Seasons {
+		TeamSeason[] m_seasons = new TeamSeason[16];
+		int m_size = 0;
+		int[] m_slots = new int[32];				// Team id + 1 of the team in each slot, or 0 if the slot is empty
+		int[] m_slotSeasons = new int[32];			// Index in m_seasons of the team in each slot
+		League.HeadToHead m_headToHead;			// Null if the results aren't kept
+
+		Seasons(boolean keepResults) {
+			m_headToHead = keepResults ? new League.HeadToHead() : null;
+		}
+
+		void add(FootballMatch fm) {
+			season(fm.homeTeamId(), fm.homeTeam()).addResult(true, fm.homeScore(), fm.awayScore());
+			season(fm.awayTeamId(), fm.awayTeam()).addResult(false, fm.awayScore(), fm.homeScore());
+			if(m_headToHead != null) {
+				m_headToHead.add(fm);
+			}
+		}
+
+		TeamSeason season(int teamId, String team) {
+			if(teamId < 0) {
+				throw new IllegalArgumentException("No team id for " + team);
+			}
+			int mask = m_slots.length - 1;
+			int slot = slot(teamId, mask);
+			while(m_slots[slot] != 0) {
+				if(m_slots[slot] == teamId + 1) {
+					return m_seasons[m_slotSeasons[slot]];
+				}
+				slot = (slot + 1) & mask;
+			}
+			TeamSeason ts = new TeamSeason();
+			ts.m_team = team;
+			ts.m_teamId = teamId;
+			if(m_size == m_seasons.length) {
+				m_seasons = Arrays.copyOf(m_seasons, m_size * 2);
+			}
+			m_seasons[m_size] = ts;
+			m_slots[slot] = teamId + 1;
+			m_slotSeasons[slot] = m_size;
+			m_size++;
+			if(2 * m_size > m_slots.length) {
+				rehash(m_slots.length * 2);
+			}
+			return ts;
+		}
+
+		static int slot(int teamId, int mask) {
+			int h = teamId * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		void rehash(int length) {
+			m_slots = new int[length];
+			m_slotSeasons = new int[length];
+			for(int i = 0; i < m_size; i++) {
+				int slot = slot(m_seasons[i].m_teamId, length - 1);
+				while(m_slots[slot] != 0) {
+					slot = (slot + 1) & (length - 1);
+				}
+				m_slots[slot] = m_seasons[i].m_teamId + 1;
+				m_slotSeasons[slot] = i;
+			}
+		}
+
+		// Adds in the seasons from the part of the stream after this one
+		Seasons combine(Seasons later) {
+			for(int i = 0; i < later.m_size; i++) {
+				TeamSeason ts = later.m_seasons[i];
+				season(ts.m_teamId, ts.m_team).combine(ts);
+			}
+			if(m_headToHead != null) {
+				m_headToHead.combine(later.m_headToHead);
+			}
+			return this;
+		}
+
+		League league(String name) {
+			return new League(name, seasons(), m_headToHead);
+		}
+
+		// The seasons in team id order
+		List<TeamSeason> seasons() {
+			List<TeamSeason> l = new ArrayList<>(Arrays.asList(m_seasons).subList(0, m_size));
+			l.sort(Comparator.comparingInt(TeamSeason::teamId));
+			return l;
+		}
+	}
+	
+	public String toString() {
+		return m_team + " played = " + played() + " points=" + points() + " gd=" + goalDifference();
+	}
+}
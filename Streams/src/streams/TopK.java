@@ -0,0 +1,128 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Collector for the first k elements of a stream in a given order, the same as sorted(order).limit(k) but without sorting
+ * everything. A heap holds the best k seen so far, with the worst of them at its head, so each element costs O(log k) at most and
+ * usually just one comparison against the head. Ties keep encounter order, as a stable sort would, including across the partial
+ * results of a parallel stream.
+ *
+ * rankings() gathers several top-k lists, each in its own order, in a single pass.
+ */
+class TopK<T> {
+
+	static class Entry<T> {
+		T m_value;
+		long m_sequence;			// Encounter position, to break ties
+
+		Entry(T value, long sequence) {
+			m_value = value;
+			m_sequence = sequence;
+		}
+	}
+
+	int m_k;
+	Comparator<? super T> m_order;
+	Comparator<Entry<T>> m_entryOrder;
+	PriorityQueue<Entry<T>> m_heap;				// Worst kept entry at the head
+	long m_seen;
+
+	TopK(int k, Comparator<? super T> order) {
+		if(k < 0) {
+			throw new IllegalArgumentException("Negative k: " + k);
+		}
+		m_k = k;
+		m_order = order;
+		m_entryOrder = (x, y) -> {
+			int c = order.compare(x.m_value, y.m_value);
+			return c != 0 ? c : Long.compare(x.m_sequence, y.m_sequence);
+		};
+		m_heap = new PriorityQueue<>(k + 1, m_entryOrder.reversed());
+		m_seen = 0;
+	}
+
+	static <T> Collector<T, ?, List<T>> top(int k, Comparator<? super T> order) {
+		return Collector.of(() -> new TopK<T>(k, order), TopK::accept, TopK::combine, TopK::result);
+	}
+
+	// Several top-k lists in one pass, one for each order, in the same sequence as the orders
+	@SafeVarargs
+	static <T> Collector<T, ?, List<List<T>>> rankings(int k, Comparator<? super T>... orders) {
+		// Copied into a list, as capturing the varargs array in the collector's functions could expose it to heap pollution
+		List<Comparator<? super T>> orderList = new ArrayList<>(orders.length);
+		for(Comparator<? super T> order : orders) {
+			orderList.add(order);
+		}
+		return rankings(k, orderList);
+	}
+
+	static <T> Collector<T, ?, List<List<T>>> rankings(int k, List<Comparator<? super T>> orders) {
+		return Collector.<T, List<TopK<T>>, List<List<T>>>of(
+				() -> {
+					List<TopK<T>> l = new ArrayList<>(orders.size());
+					orders.forEach(order -> l.add(new TopK<T>(k, order)));
+					return l;
+				},
+				(l, t) -> l.forEach(topK -> topK.accept(t)),
+				(l1, l2) -> {
+					for(int i = 0; i < l1.size(); i++) {
+						l1.get(i).combine(l2.get(i));
+					}
+					return l1;
+				},
+				l -> {
+					List<List<T>> results = new ArrayList<>(l.size());
+					l.forEach(topK -> results.add(topK.result()));
+					return results;
+				});
+	}
+
+	void accept(T t) {
+		offer(t, m_seen++);
+	}
+
+	void offer(T t, long sequence) {
+		if(m_heap.size() < m_k) {
+			m_heap.add(new Entry<>(t, sequence));
+		}
+		// Only a strictly better element gets in once the heap is full - an equal one came later, so loses the tie
+		else if(m_k > 0 && m_order.compare(t, m_heap.peek().m_value) < 0) {
+			m_heap.poll();
+			m_heap.add(new Entry<>(t, sequence));
+		}
+	}
+
+	// Adds in the elements from the part of the stream after this one
+	TopK<T> combine(TopK<T> later) {
+		for(Entry<T> e : later.m_heap) {
+			offerEntry(e.m_value, m_seen + e.m_sequence);
+		}
+		m_seen += later.m_seen;
+		return this;
+	}
+
+	// As offer, but an element from a later part can tie with one kept here, so the sequence has to be compared too
+	void offerEntry(T t, long sequence) {
+		Entry<T> e = new Entry<>(t, sequence);
+		if(m_heap.size() < m_k) {
+			m_heap.add(e);
+		}
+		else if(m_k > 0 && m_entryOrder.compare(e, m_heap.peek()) < 0) {
+			m_heap.poll();
+			m_heap.add(e);
+		}
+	}
+
+	List<T> result() {
+		List<Entry<T>> entries = new ArrayList<>(m_heap);
+		entries.sort(m_entryOrder);
+		List<T> l = new ArrayList<>(entries.size());
+		entries.forEach(e -> l.add(e.m_value));
+		return l;
+	}
+}